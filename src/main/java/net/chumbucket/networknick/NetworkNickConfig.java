@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * The settings read on hot paths (applying names, commands, messages), parsed and clamped
+ * once from config.yml. Immutable: /networknick reload builds a new one and swaps it in,
+ * so a reader always sees one consistent config. Storage settings are still read by the
+ * backend when it is (re)created.
+ *
+ * @param maxNickLength     visible nick length, 3-16
+ * @param hideNick          hide.nick with &k prepended, or null to generate one; commands trim it to maxNickLength
+ * @param hideRandomLength  length of a generated hide nick, 3-maxNickLength
+ * @param hidePrefix        let UI plugins drop prefixes while hidden (%networknick_hide_prefix%)
+ * @param enforcePeriodTicks how often names are first checked after join, at least 1
+ * @param enforceMaxPeriodTicks check interval once a name keeps sticking, at least enforcePeriodTicks
+ * @param enforceDurationTicks how long checks run after join, at least 1 (ignored when continuous)
+ * @param enforceContinuous  keep checking for as long as the player is online
+ * @param applyBudgetMicros main-thread time per tick for applying queued updates, 100-50000
+ * @param messages          message templates by full path ("messages.nick-set")
+ */
+public record NetworkNickConfig(
+        boolean applyDisplayName,
+        boolean applyPlayerListName,
+        boolean applyCustomName,
+        int maxNickLength,
+        String hideNick,
+        int hideRandomLength,
+        boolean hidePrefix,
+        boolean enforceEnabled,
+        int enforcePeriodTicks,
+        int enforceMaxPeriodTicks,
+        int enforceDurationTicks,
+        boolean enforceContinuous,
+        int applyBudgetMicros,
+        Map<String, String> messages
+) {
+
+    private static final int MIN_NICK_LENGTH = 3;
+    // Vanilla/tablist/scoreboard limit
+    private static final int MAX_NICK_LENGTH = 16;
+
+    public NetworkNickConfig {
+        messages = Map.copyOf(messages);
+    }
+
+    /** Parse and validate; out-of-range values are clamped with a warning. */
+    public static NetworkNickConfig load(FileConfiguration cfg, Logger log) {
+        int maxLen = clamp(log, "nick.max-length", cfg.getInt("nick.max-length", 16), MIN_NICK_LENGTH, MAX_NICK_LENGTH);
+        int enforcePeriod = clamp(log, "enforce.period-ticks", cfg.getInt("enforce.period-ticks", 10), 1, Integer.MAX_VALUE);
+
+        String hideNick = cfg.getString("hide.nick", "");
+        hideNick = hideNick == null ? "" : hideNick.trim();
+        if (hideNick.isEmpty()) hideNick = null;
+        else if (!(hideNick.startsWith("&k") || hideNick.startsWith("§k"))) hideNick = "&k" + hideNick;
+
+        Map<String, String> messages = new HashMap<>();
+        ConfigurationSection section = cfg.getConfigurationSection("messages");
+        if (section != null) {
+            for (String key : section.getKeys(false)) {
+                String value = section.getString(key);
+                if (value != null) messages.put("messages." + key, value);
+            }
+        }
+
+        return new NetworkNickConfig(
+                cfg.getBoolean("apply.display-name", true),
+                playerListName(cfg, log),
+                // Optional toggle: defaults true to preserve old behavior
+                cfg.getBoolean("apply.custom-name", true),
+                maxLen,
+                hideNick,
+                clamp(log, "hide.random-length", cfg.getInt("hide.random-length", 12), MIN_NICK_LENGTH, maxLen),
+                cfg.getBoolean("hide.hide-prefix", false),
+                cfg.getBoolean("enforce.enabled", true),
+                enforcePeriod,
+                clamp(log, "enforce.max-period-ticks", cfg.getInt("enforce.max-period-ticks", 40), enforcePeriod, Integer.MAX_VALUE),
+                clamp(log, "enforce.duration-ticks", cfg.getInt("enforce.duration-ticks", 120), 1, Integer.MAX_VALUE),
+                cfg.getBoolean("enforce.continuous", false),
+                clamp(log, "apply.tick-budget-us", cfg.getInt("apply.tick-budget-us", 2000), 100, 50_000),
+                messages
+        );
+    }
+
+    /** Message template at {@code path}, or "" if there is none. */
+    public String message(String path) {
+        return messages.getOrDefault(path, "");
+    }
+
+    /**
+     * apply.playerlist-name. Configs from 1.0.x have apply.playerlist_name: false, which 1.0.x
+     * never read (it always set the tab-list name); honoring it now would silently drop nicks
+     * from the tab list on upgrade, so the old key is only warned about, never applied.
+     * isSet ignores the jar's defaults, so only keys actually in the file count.
+     */
+    private static boolean playerListName(FileConfiguration cfg, Logger log) {
+        boolean value = cfg.getBoolean("apply.playerlist-name", true);
+        if (!cfg.isSet("apply.playerlist_name")) return value;
+
+        if (cfg.isSet("apply.playerlist-name")) {
+            log.warning("apply.playerlist_name is not used; apply.playerlist-name (" + value + ") is. Remove apply.playerlist_name.");
+        } else if (!cfg.getBoolean("apply.playerlist_name", true)) {
+            log.warning("apply.playerlist_name is not used (earlier versions ignored it too), so nicks still show in the tab list."
+                    + " To turn that off, replace it with apply.playerlist-name: false.");
+        } else {
+            log.warning("apply.playerlist_name is not used; rename it to apply.playerlist-name.");
+        }
+        return value;
+    }
+
+    private static int clamp(Logger log, String path, int value, int min, int max) {
+        if (value >= min && value <= max) return value;
+        int clamped = Math.max(min, Math.min(max, value));
+        log.warning(path + " must be between " + min + " and " + max + "; using " + clamped + ".");
+        return clamped;
+    }
+}
@@ -17,23 +17,28 @@ import net.chumbucket.networknick.command.UnhideCommand;
 import net.chumbucket.networknick.listener.JoinApplyListener;
 import net.chumbucket.networknick.listener.PreLoginNickCacheListener;
 import net.chumbucket.networknick.papi.NetworkNickExpansion;
-import net.chumbucket.networknick.redis.RedisBus;
 import net.chumbucket.networknick.service.ExemptService;
+import net.chumbucket.networknick.service.NickScheduler;
 import net.chumbucket.networknick.service.NickService;
+import net.chumbucket.networknick.store.LocalSnapshot;
+import net.chumbucket.networknick.store.NickBackend;
 import net.chumbucket.networknick.util.Msg;
 import org.bukkit.Bukkit;
 import org.bukkit.plugin.java.JavaPlugin;
 
 public final class NetworkNickPlugin extends JavaPlugin {
 
-    private RedisBus redis;
+    private volatile NickBackend backend;
+    private volatile NetworkNickConfig settings;
+    private LocalSnapshot snapshot;
     private NickService nickService;
     private ExemptService exemptService;
 
     @Override
     public void onEnable() {
         saveDefaultConfig();
-        Msg.init(this);
+        reloadSettings();
+        Msg.init(this::settings);
 
         try {
             RedisLibraries.load(this);
@@ -42,54 +47,83 @@ public final class NetworkNickPlugin extends JavaPlugin {
             getLogger().severe("NetworkNick will still enable, but Redis sync will be unavailable.");
         }
 
-        this.nickService = new NickService(this);
-        this.redis = new RedisBus(this, nickService);
-        this.exemptService = new ExemptService(this);
+        NickScheduler scheduler = NickScheduler.detect(this);
+        this.nickService = new NickService(getLogger(), this::settings, scheduler);
+
+        // Last known nicks from before the restart, loaded before anyone can join
+        this.snapshot = new LocalSnapshot(this);
+        snapshot.open();
+
+        this.backend = NickBackend.create(this, nickService, snapshot);
+        this.exemptService = new ExemptService(this, scheduler);
 
         // Commands
         if (getCommand("nick") != null) {
-            getCommand("nick").setExecutor(new NickCommand(this, nickService, redis, exemptService));
+            getCommand("nick").setExecutor(new NickCommand(this::settings, nickService, this::backend, exemptService));
             getCommand("nick").setTabCompleter(new net.chumbucket.networknick.command.NickTabCompleter(nickService));
         }
-        if (getCommand("hide") != null) getCommand("hide").setExecutor(new HideCommand(this, nickService, redis));
-        if (getCommand("unhide") != null) getCommand("unhide").setExecutor(new UnhideCommand(this, nickService, redis, exemptService));
+        if (getCommand("hide") != null) getCommand("hide").setExecutor(new HideCommand(this::settings, nickService, this::backend));
+        if (getCommand("unhide") != null) getCommand("unhide").setExecutor(new UnhideCommand(this::settings, nickService, this::backend, exemptService));
 
         if (getCommand("networknick") != null) {
             getCommand("networknick").setExecutor(new ReloadCommand(
                     this,
                     nickService,
-                    new ReloadCommand.RedisRef() {
-                        @Override public RedisBus get() { return redis; }
-                        @Override public void set(RedisBus bus) { redis = bus; }
-                    }
+                    new ReloadCommand.BackendRef() {
+                        @Override public NickBackend get() { return backend; }
+                        @Override public void set(NickBackend b) { backend = b; }
+                    },
+                    snapshot,
+                    this::reloadSettings
             ));
         }
 
         // Listeners
         Bukkit.getPluginManager().registerEvents(nickService, this);
+        nickService.start();
 
         // ✅ NEW: pre-login fetch so join message sees displayname nick
-        PreLoginNickCacheListener prelogin = new PreLoginNickCacheListener(redis);
+        PreLoginNickCacheListener prelogin = new PreLoginNickCacheListener(this::backend, snapshot);
         Bukkit.getPluginManager().registerEvents(prelogin, this);
 
         // ✅ UPDATED: join apply uses prelogin cache and applies at LOWEST priority
-        Bukkit.getPluginManager().registerEvents(new JoinApplyListener(this, redis, nickService, prelogin), this);
+        Bukkit.getPluginManager().registerEvents(new JoinApplyListener(scheduler, this::settings, this::backend, nickService, prelogin), this);
 
-        // Start redis subscriber
-        redis.start();
+        // Open the store and start receiving updates
+        backend.start();
 
         // Optional PAPI
         if (Bukkit.getPluginManager().getPlugin("PlaceholderAPI") != null) {
-            new NetworkNickExpansion(this, nickService, redis).register();
+            new NetworkNickExpansion(this, this::settings, nickService, this::backend).register();
             getLogger().info("PlaceholderAPI hooked.");
         }
 
         getLogger().info("NetworkNick enabled.");
     }
 
+    /**
+     * The live backend. /networknick reload swaps it, so consumers hold {@code this::backend}
+     * instead of a NickBackend reference.
+     */
+    public NickBackend backend() {
+        return backend;
+    }
+
+    /** The current config. Hold {@code this::settings}; reload swaps in a new one. */
+    public NetworkNickConfig settings() {
+        return settings;
+    }
+
+    /** Re-read config.yml into a new {@link NetworkNickConfig} and publish it in one write. */
+    public void reloadSettings() {
+        settings = NetworkNickConfig.load(getConfig(), getLogger());
+    }
+
     @Override
     public void onDisable() {
-        if (redis != null) redis.stop();
+        if (backend != null) backend.stop();
+        if (nickService != null) nickService.stop();
+        if (snapshot != null) snapshot.close();
         getLogger().info("NetworkNick disabled.");
     }
 }
@@ -24,7 +24,14 @@ public final class RedisLibraries {
         // If you want to add repositories, Libby supports it, but Maven Central is enough for Jedis.
         // manager.addRepository("https://repo1.maven.org/maven2/");
 
-        // ✅ Load Jedis at runtime (and transitives like commons-pool2)
+        // Libby does not resolve transitives; JedisPooled needs commons-pool2 on the classpath.
+        manager.loadLibrary(Library.builder()
+                .groupId("org.apache.commons")
+                .artifactId("commons-pool2")
+                .version("2.12.0")
+                .build());
+
+        // ✅ Load Jedis at runtime
         manager.loadLibrary(Library.builder()
                 .groupId("redis.clients")
                 .artifactId("jedis")
@@ -10,33 +10,30 @@
 
 package net.chumbucket.networknick.command;
 
-import net.chumbucket.networknick.redis.RedisBus;
+import net.chumbucket.networknick.NetworkNickConfig;
+import net.chumbucket.networknick.service.NickService;
+import net.chumbucket.networknick.store.NickBackend;
+import net.chumbucket.networknick.store.NickChange;
 import net.chumbucket.networknick.util.Msg;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
-import org.bukkit.plugin.java.JavaPlugin;
 
+import java.util.UUID;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
 public final class HideCommand implements CommandExecutor {
 
-    private final JavaPlugin plugin;
-    private final RedisBus redis;
+    private final Supplier<NetworkNickConfig> settings;
+    private final NickService service;
+    private final Supplier<NickBackend> backend;
 
-    public HideCommand(JavaPlugin plugin,
-                       net.chumbucket.networknick.service.NickService service, // kept for call-site compatibility
-                       RedisBus redis) {
-        this.plugin = plugin;
-        this.redis = redis;
-    }
-
-    private static boolean isHideNick(String nick) {
-        if (nick == null) return false;
-        String s = nick.trim();
-        // could be stored as &k... or already colorized as §k...
-        return s.startsWith("&k") || s.startsWith("§k");
+    public HideCommand(Supplier<NetworkNickConfig> settings, NickService service, Supplier<NickBackend> backend) {
+        this.settings = settings;
+        this.service = service;
+        this.backend = backend;
     }
 
     // ---- code/length helpers (kept local; no dependency on NickCommand) ----
@@ -115,20 +112,14 @@ public final class HideCommand implements CommandExecutor {
 
     /**
      * Returns the configured hide nickname (hide.nick) if present, else null.
-     * - Ensures it starts with &k/§k so hide detection works.
+     * - Ensures it starts with &k/§k so the hidden name is obfuscated.
      * - Trims to nick.max-length visible chars for safety.
      */
     private String getConfiguredHideNickOrNull(int maxVisibleLen) {
-        String cfg = plugin.getConfig().getString("hide.nick", "");
+        // Already trimmed and &k-prefixed by NetworkNickConfig
+        String cfg = settings.get().hideNick();
         if (cfg == null) return null;
 
-        cfg = cfg.trim();
-        if (cfg.isBlank()) return null;
-
-        if (!(cfg.startsWith("&k") || cfg.startsWith("§k"))) {
-            cfg = "&k" + cfg;
-        }
-
         String trimmed = trimToVisibleLength(cfg, maxVisibleLen);
 
         // If trimming destroys visible characters completely, ignore and fallback
@@ -139,10 +130,7 @@ public final class HideCommand implements CommandExecutor {
     }
 
     private int getMaxVisibleNickLen() {
-        int maxLen = plugin.getConfig().getInt("nick.max-length", 16);
-        if (maxLen < 3) maxLen = 3;
-        if (maxLen > 16) maxLen = 16;
-        return maxLen;
+        return settings.get().maxNickLength();
     }
 
     @Override
@@ -156,53 +144,41 @@ public final class HideCommand implements CommandExecutor {
             return true;
         }
 
-        // Toggle behavior: if already hidden -> unhide (restore prior nick if any)
-        String current = redis.getNick(p.getUniqueId());
-        if (isHideNick(current)) {
-            String prior = redis.getPriorNick(p.getUniqueId());
+        // Toggle behavior: if already hidden -> unhide (restore prior nick if any),
+        // otherwise remember the current nick as prior and hide. All Redis work is async.
+        UUID uuid = p.getUniqueId();
+        String realName = p.getName();
+        String hideNick = buildHideNick();
 
-            if (prior != null && !prior.isBlank()) {
-                redis.setNick(p.getUniqueId(), prior);
-                redis.clearPriorNick(p.getUniqueId());
-                Msg.send(p, "messages.unhide", "{nick}", prior);
-            } else {
-                redis.setNick(p.getUniqueId(), null);
-                redis.clearPriorNick(p.getUniqueId());
-                Msg.send(p, "messages.unhide", "{nick}", p.getName());
+        backend.get().toggleHideAsync(uuid, hideNick).whenCompleteAsync((change, err) -> {
+            if (err != null) {
+                Msg.send(p, "messages.redis-error");
+                return;
             }
-            return true;
-        }
 
-        // Not currently hidden -> hide them
+            if (change.kind() == NickChange.Kind.HIDDEN) {
+                Msg.send(p, "messages.hide-set", "{nick}", change.nick());
+            } else {
+                Msg.send(p, "messages.unhide", "{nick}", change.nick() == null ? realName : change.nick());
+            }
+        }, service::runSync);
+        return true;
+    }
 
+    /**
+     * The nick to hide behind: hide.nick if configured, otherwise "&k" + ":" repeated
+     * hide.random-length times (capped to the visible max).
+     */
+    private String buildHideNick() {
         int maxVisibleLen = getMaxVisibleNickLen();
 
-        // BEFORE hiding: store current nick if it's a real nick (not blank, not already hide)
-        if (current != null && !current.isBlank() && !isHideNick(current)) {
-            redis.setPriorNick(p.getUniqueId(), current);
-        } else {
-            // If they had no nick, keep prior cleared so unhide returns to normal name
-            redis.clearPriorNick(p.getUniqueId());
-        }
-
         // 1) Prefer config-defined hide nick if present
         String configured = getConfiguredHideNickOrNull(maxVisibleLen);
-        if (configured != null) {
-            redis.setNick(p.getUniqueId(), configured);
-            Msg.send(p, "messages.hide-set", "{nick}", configured);
-            return true;
-        }
+        if (configured != null) return configured;
 
         // 2) Fallback: generate "&k" + ":" repeated hide.random-length (capped to visible max)
-        int len = plugin.getConfig().getInt("hide.random-length", 12);
-        if (len < 3) len = 3;
-        if (len > maxVisibleLen) len = maxVisibleLen;
+        int len = Math.min(settings.get().hideRandomLength(), maxVisibleLen);
 
-        String body = ":".repeat(len);
-        String nick = "&k" + body;
-
-        redis.setNick(p.getUniqueId(), nick);
-        Msg.send(p, "messages.hide-set", "{nick}", nick);
-        return true;
+        return "&k" + ":".repeat(len);
     }
 }
@@ -10,9 +10,10 @@
 
 package net.chumbucket.networknick.command;
 
-import net.chumbucket.networknick.redis.RedisBus;
+import net.chumbucket.networknick.NetworkNickConfig;
 import net.chumbucket.networknick.service.ExemptService;
 import net.chumbucket.networknick.service.NickService;
+import net.chumbucket.networknick.store.NickBackend;
 import net.chumbucket.networknick.util.Msg;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
@@ -20,26 +21,27 @@ import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
-import org.bukkit.plugin.java.JavaPlugin;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public final class NickCommand implements CommandExecutor {
 
-    private final JavaPlugin plugin;
+    private final Supplier<NetworkNickConfig> settings;
     private final NickService service;
-    private final RedisBus redis;
+    private final Supplier<NickBackend> backend;
     private final ExemptService exempt;
 
-    public NickCommand(JavaPlugin plugin, NickService service, RedisBus redis, ExemptService exempt) {
-        this.plugin = plugin;
+    public NickCommand(Supplier<NetworkNickConfig> settings, NickService service, Supplier<NickBackend> backend, ExemptService exempt) {
+        this.settings = settings;
         this.service = service;
-        this.redis = redis;
+        this.backend = backend;
         this.exempt = exempt;
     }
 
@@ -176,9 +178,23 @@ public final class NickCommand implements CommandExecutor {
         return true;
     }
 
-    private void clearNick(UUID targetUuid) {
-        redis.setNick(targetUuid, null);
-        try { redis.clearPriorNick(targetUuid); } catch (Throwable ignored) {}
+    /**
+     * Report the outcome of an async Redis write back on the main thread:
+     * {@code onSuccess} if it went through, a storage error otherwise.
+     */
+    private void afterWrite(CompletableFuture<Void> write, CommandSender actor, Runnable onSuccess) {
+        write.whenCompleteAsync((v, err) -> {
+            if (err != null) Msg.send(actor, "messages.redis-error");
+            else onSuccess.run();
+        }, service::runSync);
+    }
+
+    private void clearNick(UUID targetUuid, CommandSender actor, Runnable onSuccess) {
+        afterWrite(backend.get().clearNickAsync(targetUuid), actor, onSuccess);
+    }
+
+    private void setNick(UUID targetUuid, String nick, CommandSender actor, Runnable onSuccess) {
+        afterWrite(backend.get().setNickAsync(targetUuid, nick), actor, onSuccess);
     }
 
     private OfflinePlayer resolveTargetByNameOrNick(String input) {
@@ -241,8 +257,7 @@ public final class NickCommand implements CommandExecutor {
                     Msg.send(p, "messages.no-perms");
                     return true;
                 }
-                clearNick(p.getUniqueId());
-                Msg.send(p, "messages.nick-cleared");
+                clearNick(p.getUniqueId(), p, () -> Msg.send(p, "messages.nick-cleared"));
                 return true;
             }
 
@@ -258,9 +273,7 @@ public final class NickCommand implements CommandExecutor {
                 return true;
             }
 
-            int maxLen = plugin.getConfig().getInt("nick.max-length", 16);
-            if (maxLen < 3) maxLen = 3;
-            if (maxLen > 16) maxLen = 16;
+            int maxLen = settings.get().maxNickLength();
 
             String trimmed = trimToVisibleLength(newNick, maxLen);
             String visibleOnly = stripAllCodes(trimmed);
@@ -270,8 +283,7 @@ public final class NickCommand implements CommandExecutor {
                 return true;
             }
 
-            redis.setNick(p.getUniqueId(), trimmed);
-            Msg.send(p, "messages.nick-set", "{nick}", trimmed);
+            setNick(p.getUniqueId(), trimmed, p, () -> Msg.send(p, "messages.nick-set", "{nick}", trimmed));
             return true;
         }
 
@@ -303,8 +315,7 @@ public final class NickCommand implements CommandExecutor {
                         return;
                     }
 
-                    clearNick(targetUuid);
-                    p.sendMessage(Msg.color("&aCleared &f" + targetName + "&a's nickname."));
+                    clearNick(targetUuid, p, () -> p.sendMessage(Msg.color("&aCleared &f" + targetName + "&a's nickname.")));
                     return;
                 }
 
@@ -326,9 +337,7 @@ public final class NickCommand implements CommandExecutor {
                     return;
                 }
 
-                int maxLen = plugin.getConfig().getInt("nick.max-length", 16);
-                if (maxLen < 3) maxLen = 3;
-                if (maxLen > 16) maxLen = 16;
+                int maxLen = settings.get().maxNickLength();
 
                 String trimmed = trimToVisibleLength(newNick, maxLen);
                 String visibleOnly = stripAllCodes(trimmed);
@@ -338,8 +347,7 @@ public final class NickCommand implements CommandExecutor {
                     return;
                 }
 
-                redis.setNick(targetUuid, trimmed);
-                p.sendMessage(Msg.color("&aSet &f" + targetName + "&a to &f" + trimmed + "&a."));
+                setNick(targetUuid, trimmed, p, () -> p.sendMessage(Msg.color("&aSet &f" + targetName + "&a to &f" + trimmed + "&a.")));
             });
 
             return true;
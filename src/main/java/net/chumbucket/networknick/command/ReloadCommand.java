@@ -10,33 +10,43 @@
 
 package net.chumbucket.networknick.command;
 
-import net.chumbucket.networknick.redis.RedisBus;
 import net.chumbucket.networknick.service.NickService;
+import net.chumbucket.networknick.store.LocalSnapshot;
+import net.chumbucket.networknick.store.NickBackend;
 import net.chumbucket.networknick.util.Msg;
-import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
-import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 public final class ReloadCommand implements CommandExecutor {
 
     private final JavaPlugin plugin;
     private final NickService service;
 
-    // We keep RedisBus via getter/setter so we can replace it on reload
-    public interface RedisRef {
-        RedisBus get();
-        void set(RedisBus bus);
+    // We keep the backend via getter/setter so we can replace it on reload
+    public interface BackendRef {
+        NickBackend get();
+        void set(NickBackend backend);
     }
 
-    private final RedisRef redisRef;
+    private final BackendRef backendRef;
+    private final LocalSnapshot snapshot;
+    private final Runnable reloadSettings;
+
+    // A reload stops the old backend asynchronously; don't let a second one overlap it
+    private final AtomicBoolean reloading = new AtomicBoolean();
 
-    public ReloadCommand(JavaPlugin plugin, NickService service, RedisRef redisRef) {
+    public ReloadCommand(JavaPlugin plugin, NickService service, BackendRef backendRef, LocalSnapshot snapshot,
+                         Runnable reloadSettings) {
         this.plugin = plugin;
         this.service = service;
-        this.redisRef = redisRef;
+        this.backendRef = backendRef;
+        this.snapshot = snapshot;
+        this.reloadSettings = reloadSettings;
     }
 
     @Override
@@ -46,33 +56,83 @@ public final class ReloadCommand implements CommandExecutor {
             return true;
         }
 
-        // 1) reload config
-        plugin.reloadConfig();
+        if (args.length > 0 && args[0].equalsIgnoreCase("status")) {
+            sendStatus(sender);
+            return true;
+        }
+
+        if (args.length > 0 && args[0].equalsIgnoreCase("migrate")) {
+            migrate(sender, args.length > 1 && args[1].equalsIgnoreCase("delete"));
+            return true;
+        }
 
-        // 2) restart redis bus so config changes apply (host/channel/prefix/etc)
-        RedisBus old = redisRef.get();
-        if (old != null) {
-            try { old.stop(); } catch (Throwable ignored) {}
+        if (!reloading.compareAndSet(false, true)) {
+            sender.sendMessage(Msg.color("&cA reload is already in progress."));
+            return true;
         }
 
-        RedisBus fresh = new RedisBus(plugin, service);
-        redisRef.set(fresh);
-        fresh.start();
-
-        // 3) re-apply names for everyone online (async fetch + sync apply)
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            for (Player p : Bukkit.getOnlinePlayers()) {
-                String nick = fresh.getNick(p.getUniqueId());
-                service.runSync(() -> {
-                    Player live = Bukkit.getPlayer(p.getUniqueId());
-                    if (live != null && live.isOnline()) {
-                        service.applyToPlayer(live, nick);
-                    }
-                });
+        // 1) reload config and swap in the new settings
+        plugin.reloadConfig();
+        reloadSettings.run();
+
+        // 2) restart the backend so config changes apply (storage type/host/channel/prefix/etc).
+        //    Stopping waits up to journal.drain-ms for queued writes, so it runs off the main thread;
+        //    the new backend starts once the old one is fully stopped.
+        NickBackend old = backendRef.get();
+        sender.sendMessage(Msg.color("&7Reloading NetworkNick..."));
+
+        CompletableFuture.runAsync(() -> {
+            if (old != null) {
+                try { old.stop(); } catch (Throwable ignored) {}
             }
-        });
+        }).whenComplete((v, err) -> service.runSync(() -> {
+            try {
+                NickBackend fresh = NickBackend.create(plugin, service, snapshot);
+                backendRef.set(fresh);
 
-        sender.sendMessage(Msg.color("&aNetworkNick reloaded."));
+                // 3) start() re-applies names for everyone online (bulk fetch + one sync pass)
+                fresh.start();
+            } finally {
+                reloading.set(false);
+            }
+
+            sender.sendMessage(Msg.color("&aNetworkNick reloaded."));
+        }));
         return true;
     }
+
+    /** Copy legacy nick/prior string keys into per-player hashes (runs async, safe to repeat). */
+    private void migrate(CommandSender sender, boolean deleteLegacy) {
+        NickBackend backend = backendRef.get();
+        if (backend == null) {
+            sender.sendMessage(Msg.color("&cNick backend is not running."));
+            return;
+        }
+
+        sender.sendMessage(Msg.color("&7Migrating legacy nick keys" + (deleteLegacy ? " (deleting old keys)" : "") + "..."));
+        backend.migrateLegacyAsync(deleteLegacy).whenCompleteAsync((count, err) -> {
+            if (err != null) {
+                sender.sendMessage(Msg.color("&cMigration failed: " + err.getMessage()));
+                return;
+            }
+            sender.sendMessage(Msg.color("&aMigrated &f" + count + "&a player(s) to the hash schema."));
+        }, service::runSync);
+    }
+
+    private void sendStatus(CommandSender sender) {
+        NickBackend backend = backendRef.get();
+        if (backend == null) {
+            sender.sendMessage(Msg.color("&cNick backend is not running."));
+            return;
+        }
+
+        sender.sendMessage(Msg.color("&aNetworkNick status"));
+        for (String line : backend.statusLines()) sender.sendMessage(Msg.color(line));
+        sender.sendMessage(Msg.color("&7Updates ignored: &f" + service.staleDropped() + "&7 stale, &f"
+                + service.redundantSkipped() + "&7 already applied"));
+        sender.sendMessage(Msg.color("&7Name fields: &f" + service.namesSet() + "&7 set, &f"
+                + service.namesUnchanged() + "&7 skipped as unchanged"));
+        sender.sendMessage(Msg.color(service.applyQueueStatus()));
+        sender.sendMessage(Msg.color(service.renderedNamesStatus()));
+    }
 }
@@ -10,9 +10,11 @@
 
 package net.chumbucket.networknick.command;
 
-import net.chumbucket.networknick.redis.RedisBus;
+import net.chumbucket.networknick.NetworkNickConfig;
 import net.chumbucket.networknick.service.ExemptService;
 import net.chumbucket.networknick.service.NickService;
+import net.chumbucket.networknick.store.NickBackend;
+import net.chumbucket.networknick.store.NickChange;
 import net.chumbucket.networknick.util.Msg;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
@@ -20,34 +22,29 @@ import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
-import org.bukkit.plugin.java.JavaPlugin;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
 public final class UnhideCommand implements CommandExecutor {
 
-    private final JavaPlugin plugin;
+    private final Supplier<NetworkNickConfig> settings;
     private final NickService service;
-    private final RedisBus redis;
+    private final Supplier<NickBackend> backend;
     private final ExemptService exempt;
 
-    public UnhideCommand(JavaPlugin plugin, NickService service, RedisBus redis, ExemptService exempt) {
-        this.plugin = plugin;
+    public UnhideCommand(Supplier<NetworkNickConfig> settings, NickService service, Supplier<NickBackend> backend, ExemptService exempt) {
+        this.settings = settings;
         this.service = service;
-        this.redis = redis;
+        this.backend = backend;
         this.exempt = exempt;
     }
 
-    private static boolean isHideNick(String nick) {
-        if (nick == null) return false;
-        String s = nick.trim();
-        return s.startsWith("&k") || s.startsWith("§k");
-    }
-
     // --- compare helpers (keep simple, but support stripping hex too) ---
 
     private static final Pattern HEX_1 = Pattern.compile("(?i)&#[0-9a-f]{6}");
@@ -124,23 +121,14 @@ public final class UnhideCommand implements CommandExecutor {
     }
 
     private int getMaxVisibleNickLen() {
-        int maxLen = plugin.getConfig().getInt("nick.max-length", 16);
-        if (maxLen < 3) maxLen = 3;
-        if (maxLen > 16) maxLen = 16;
-        return maxLen;
+        return settings.get().maxNickLength();
     }
 
     private String getConfiguredHideNickOrNull(int maxVisibleLen) {
-        String cfg = plugin.getConfig().getString("hide.nick", "");
+        // Already trimmed and &k-prefixed by NetworkNickConfig
+        String cfg = settings.get().hideNick();
         if (cfg == null) return null;
 
-        cfg = cfg.trim();
-        if (cfg.isBlank()) return null;
-
-        if (!(cfg.startsWith("&k") || cfg.startsWith("§k"))) {
-            cfg = "&k" + cfg;
-        }
-
         String trimmed = trimToVisibleLength(cfg, maxVisibleLen);
         String visibleOnly = stripAllCodes(trimmed);
         if (visibleOnly.isBlank()) return null;
@@ -182,55 +170,34 @@ public final class UnhideCommand implements CommandExecutor {
         return op;
     }
 
-    private void doUnhide(UUID uuid, String fallbackName, CommandSender actor) {
-        String current = redis.getNick(uuid);
-
-        if (!isHideNick(current)) {
-            actor.sendMessage(Msg.color("&cThat player is not hidden."));
-            return;
-        }
-
-        String prior = redis.getPriorNick(uuid);
-
-        if (prior != null && !prior.isBlank()) {
-            redis.setNick(uuid, prior);
-            redis.clearPriorNick(uuid);
-            actor.sendMessage(Msg.color("&aUnhid &f" + fallbackName + "&a (restored &f" + prior + "&a)."));
-        } else {
-            redis.setNick(uuid, null);
-            redis.clearPriorNick(uuid);
-            actor.sendMessage(Msg.color("&aUnhid &f" + fallbackName + "&a (restored normal name)."));
-        }
-    }
-
-    private void doHideSelf(Player p, String currentNick) {
+    private String buildHideNick() {
         int maxVisibleLen = getMaxVisibleNickLen();
 
-        // Store current nick as prior if it's a real nick (not blank, not already hide)
-        if (currentNick != null && !currentNick.isBlank() && !isHideNick(currentNick)) {
-            redis.setPriorNick(p.getUniqueId(), currentNick);
-        } else {
-            redis.clearPriorNick(p.getUniqueId());
-        }
-
         // Prefer config-driven hide nick
         String configured = getConfiguredHideNickOrNull(maxVisibleLen);
-        if (configured != null) {
-            redis.setNick(p.getUniqueId(), configured);
-            Msg.send(p, "messages.hide-set", "{nick}", configured);
-            return;
-        }
+        if (configured != null) return configured;
 
         // Fallback generator
-        int len = plugin.getConfig().getInt("hide.random-length", 12);
-        if (len < 3) len = 3;
-        if (len > maxVisibleLen) len = maxVisibleLen;
+        int len = Math.min(settings.get().hideRandomLength(), maxVisibleLen);
 
-        String body = ":".repeat(len);
-        String nick = "&k" + body;
+        return "&k" + ":".repeat(len);
+    }
+
+    private void doUnhide(UUID uuid, String fallbackName, CommandSender actor) {
+        backend.get().unhideAsync(uuid).whenCompleteAsync((change, err) -> {
+            if (err != null) {
+                Msg.send(actor, "messages.redis-error");
+                return;
+            }
 
-        redis.setNick(p.getUniqueId(), nick);
-        Msg.send(p, "messages.hide-set", "{nick}", nick);
+            if (change.kind() == NickChange.Kind.NOT_HIDDEN) {
+                actor.sendMessage(Msg.color("&cThat player is not hidden."));
+            } else if (change.nick() != null) {
+                actor.sendMessage(Msg.color("&aUnhid &f" + fallbackName + "&a (restored &f" + change.nick() + "&a)."));
+            } else {
+                actor.sendMessage(Msg.color("&aUnhid &f" + fallbackName + "&a (restored normal name)."));
+            }
+        }, service::runSync);
     }
 
     @Override
@@ -247,30 +214,28 @@ public final class UnhideCommand implements CommandExecutor {
                 return true;
             }
 
-            String current = redis.getNick(p.getUniqueId());
-
-            // Unhide self if hidden
-            if (isHideNick(current)) {
-                String prior = redis.getPriorNick(p.getUniqueId());
-                if (prior != null && !prior.isBlank()) {
-                    redis.setNick(p.getUniqueId(), prior);
-                    redis.clearPriorNick(p.getUniqueId());
-                    Msg.send(p, "messages.unhide", "{nick}", prior);
-                } else {
-                    redis.setNick(p.getUniqueId(), null);
-                    redis.clearPriorNick(p.getUniqueId());
-                    Msg.send(p, "messages.unhide", "{nick}", p.getName());
-                }
-                return true;
-            }
+            // Unhide self if hidden; if not hidden, behave like toggle hide (same as /hide).
+            // Without hide permission we only try to unhide, so a non-hidden player gets no-perms.
+            UUID uuid = p.getUniqueId();
+            String realName = p.getName();
+            boolean canHide = p.hasPermission("networknick.hide");
 
-            // Not hidden -> behave like toggle hide (same as /hide)
-            if (!p.hasPermission("networknick.hide")) {
-                Msg.send(p, "messages.no-perms");
-                return true;
-            }
+            CompletableFuture<NickChange> change = canHide
+                    ? backend.get().toggleHideAsync(uuid, buildHideNick())
+                    : backend.get().unhideAsync(uuid);
 
-            doHideSelf(p, current);
+            change.whenCompleteAsync((c, err) -> {
+                if (err != null) {
+                    Msg.send(p, "messages.redis-error");
+                    return;
+                }
+
+                switch (c.kind()) {
+                    case HIDDEN -> Msg.send(p, "messages.hide-set", "{nick}", c.nick());
+                    case UNHIDDEN -> Msg.send(p, "messages.unhide", "{nick}", c.nick() == null ? realName : c.nick());
+                    case NOT_HIDDEN -> Msg.send(p, "messages.no-perms");
+                }
+            }, service::runSync);
             return true;
         }
 
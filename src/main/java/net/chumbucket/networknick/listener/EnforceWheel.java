@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.listener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Name enforcement for every player on one hashed timing wheel, advanced by a single
+ * per-tick task: a check due in {@code n} ticks goes in slot {@code (now + n) % SLOTS}, so
+ * a tick only looks at the checks in its own slot (plus any parked there for a later lap).
+ *
+ * Each player's check interval starts at the base period and doubles (up to the max) every
+ * time their name was found intact, dropping back to the base when it had to be re-applied.
+ * Checks stop at the player's deadline, or never in continuous mode. Cancelling only flags
+ * the entry; it is dropped when its slot comes up. Main thread (Folia: global region) only.
+ *
+ * A check may finish later on another thread (Folia: the player's region) and report back
+ * through {@link Check}; the player is off the wheel until it does.
+ */
+final class EnforceWheel {
+
+    /** What a check found. */
+    enum Result {
+        /** Player left; stop checking. */
+        GONE,
+        /** Nothing to enforce yet (e.g. the join lookup hasn't been applied); check again at the base period. */
+        WAITING,
+        /** Name was intact; back off. */
+        INTACT,
+        /** Name had been overridden and was re-applied; check again at the base period. */
+        FIXED
+    }
+
+    /** Runs one player's check and hands its result to {@code done} on the wheel's thread. */
+    interface Check {
+        void run(UUID uuid, Consumer<Result> done);
+    }
+
+    private static final int SLOTS = 64;
+    private static final int MASK = SLOTS - 1;
+
+    private static final class Entry {
+        final UUID uuid;
+        final int basePeriod;
+        final int maxPeriod;
+        // Absolute tick after which no more checks run; Long.MAX_VALUE = continuous
+        final long end;
+        int period;
+        long due;
+        boolean cancelled;
+
+        Entry(UUID uuid, int basePeriod, int maxPeriod, long end) {
+            this.uuid = uuid;
+            this.basePeriod = basePeriod;
+            this.maxPeriod = maxPeriod;
+            this.end = end;
+            this.period = basePeriod;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private final List<Entry>[] slots = new List[SLOTS];
+    private final Map<UUID, Entry> byPlayer = new HashMap<>();
+    private final Check check;
+
+    private long now;
+
+    EnforceWheel(Check check) {
+        this.check = check;
+        for (int i = 0; i < SLOTS; i++) slots[i] = new ArrayList<>();
+    }
+
+    /**
+     * Start (or restart) checks for a player.
+     * @param durationTicks how long to keep checking, or a negative value for continuous
+     */
+    void schedule(UUID uuid, int basePeriod, int maxPeriod, int durationTicks) {
+        cancel(uuid);
+        long end = durationTicks < 0 ? Long.MAX_VALUE : now + durationTicks;
+        Entry e = new Entry(uuid, basePeriod, maxPeriod, end);
+        byPlayer.put(uuid, e);
+        place(e, basePeriod);
+    }
+
+    void cancel(UUID uuid) {
+        Entry e = byPlayer.remove(uuid);
+        if (e != null) e.cancelled = true;
+    }
+
+    /** Advance one tick and run the checks due in it. */
+    void tick() {
+        now++;
+        List<Entry> slot = slots[(int) (now & MASK)];
+        if (slot.isEmpty()) return;
+
+        List<Entry> due = new ArrayList<>();
+        int keep = 0;
+        for (Entry e : slot) {
+            if (e.cancelled) continue;
+            if (e.due <= now) due.add(e);
+            else slot.set(keep++, e); // due on a later lap
+        }
+        slot.subList(keep, slot.size()).clear();
+
+        for (Entry e : due) {
+            // Cancelled (or rescheduled) by an earlier check in this same tick
+            if (e.cancelled) continue;
+            check.run(e.uuid, r -> done(e, r));
+        }
+    }
+
+    // A check's result: back on the wheel at the next interval, or off it
+    private void done(Entry e, Result r) {
+        // Cancelled or rescheduled while the check was out
+        if (e.cancelled) return;
+
+        if (r == Result.GONE) {
+            cancel(e.uuid);
+            return;
+        }
+
+        e.period = r == Result.INTACT ? (int) Math.min(e.maxPeriod, e.period * 2L) : e.basePeriod;
+        if (now + e.period > e.end) {
+            cancel(e.uuid);
+            return;
+        }
+        place(e, e.period);
+    }
+
+    private void place(Entry e, int delay) {
+        e.due = now + Math.max(1, delay);
+        slots[(int) (e.due & MASK)].add(e);
+    }
+}
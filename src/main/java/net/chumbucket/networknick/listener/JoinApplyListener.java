@@ -10,9 +10,11 @@
 
 package net.chumbucket.networknick.listener;
 
-import net.chumbucket.networknick.redis.RedisBus;
+import net.chumbucket.networknick.NetworkNickConfig;
+import net.chumbucket.networknick.service.NickScheduler;
 import net.chumbucket.networknick.service.NickService;
-import net.chumbucket.networknick.util.Msg;
+import net.chumbucket.networknick.service.NickState;
+import net.chumbucket.networknick.store.NickBackend;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -20,35 +22,32 @@ import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
-import org.bukkit.plugin.java.JavaPlugin;
 
-import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public final class JoinApplyListener implements Listener {
 
-    private final JavaPlugin plugin;
-    private final RedisBus redis;
+    private final NickScheduler scheduler;
+    private final Supplier<NetworkNickConfig> settings;
+    private final Supplier<NickBackend> backend;
     private final NickService service;
     private final PreLoginNickCacheListener preloginCache;
 
-    // per-player enforcement task id
-    private final Map<UUID, Integer> enforceTasks = new ConcurrentHashMap<>();
+    // Every player's enforcement checks, advanced by one task
+    private final EnforceWheel enforcer = new EnforceWheel(this::enforce);
 
-    public JoinApplyListener(JavaPlugin plugin, RedisBus redis, NickService service, PreLoginNickCacheListener preloginCache) {
-        this.plugin = plugin;
-        this.redis = redis;
+    public JoinApplyListener(NickScheduler scheduler, Supplier<NetworkNickConfig> settings, Supplier<NickBackend> backend,
+                             NickService service, PreLoginNickCacheListener preloginCache) {
+        this.scheduler = scheduler;
+        this.settings = settings;
+        this.backend = backend;
         this.service = service;
         this.preloginCache = preloginCache;
-    }
-
-    private boolean applyDisplayEnabled() {
-        return plugin.getConfig().getBoolean("apply.display-name", true);
-    }
 
-    private boolean applyListEnabled() {
-        return plugin.getConfig().getBoolean("apply.playerlist-name", true);
+        // The wheel lives on the main thread (Folia: global region); joins and quits hop onto it
+        scheduler.repeatGlobal(enforcer::tick, 1L, 1L);
     }
 
     /**
@@ -60,91 +59,98 @@ public final class JoinApplyListener implements Listener {
         final UUID uuid = p.getUniqueId();
 
         // 1) Apply immediately using pre-login cached nick (no waiting)
-        String cached = preloginCache.pop(uuid);
+        NickState cached = preloginCache.pop(uuid);
         service.applyToPlayer(p, cached);
 
-        // 2) Async truth-check: fetch from Redis after join (in case cache missed)
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            String nick = redis.getNick(uuid);
-
-            service.runSync(() -> {
-                Player live = Bukkit.getPlayer(uuid);
-                if (live == null || !live.isOnline()) return;
-
-                service.applyToPlayer(live, nick);
-
-                // 3) Optional short enforcement to beat late overrides
-                //    ✅ Now:
-                //      - only if we actually apply anything
-                //      - runs every 10 ticks (not every tick)
-                //      - only reapplies if current value differs
-                stopEnforce(uuid);
-
-                final boolean doDisplay = applyDisplayEnabled();
-                final boolean doList = applyListEnabled();
-                if (!doDisplay && !doList) return;
-
-                final String desiredLegacy = (nick == null || nick.isBlank()) ? live.getName() : nick;
-                final String desiredColored = Msg.color(desiredLegacy);
-
-                final int maxRuns = 20 * 3 / 10; // 3 seconds, every 10 ticks => ~6 runs
-                final int taskId = Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin, new Runnable() {
-                    int runs = 0;
-
-                    @Override
-                    public void run() {
-                        Player now = Bukkit.getPlayer(uuid);
-                        if (now == null || !now.isOnline()) {
-                            stopEnforce(uuid);
-                            return;
-                        }
-
-                        boolean needs = false;
-
-                        if (doDisplay) {
-                            try {
-                                String cur = now.getDisplayName();
-                                if (cur == null || !cur.equals(desiredColored)) needs = true;
-                            } catch (Throwable ignored) {
-                                needs = true;
-                            }
-                        }
-
-                        if (doList) {
-                            try {
-                                String cur = now.getPlayerListName();
-                                if (cur == null || !cur.equals(desiredColored)) needs = true;
-                            } catch (Throwable ignored) {
-                                needs = true;
-                            }
-                        }
-
-                        if (needs) {
-                            service.applyToPlayer(now, nick);
-                        }
-
-                        runs++;
-                        if (runs >= maxRuns) stopEnforce(uuid);
-                    }
-                }, 10L, 10L);
-
-                enforceTasks.put(uuid, taskId);
-            });
+        // 2) Async truth-check: fetch from Redis after join (in case cache missed), applied by the tick queue.
+        //    Dropped if a newer version already arrived via pub/sub while we were reading
+        backend.get().joinAsync(uuid).thenAccept(state -> service.queueApply(uuid, state));
+
+        // 3) Optional short enforcement to beat late overrides
+        //    ✅ Now:
+        //      - only if we actually apply anything
+        //      - checks every enforce.period-ticks, backing off to enforce.max-period-ticks while the name sticks
+        //      - only reapplies if current value differs
+        //    Started right away: it always enforces the newest applied state, so the truth-check
+        //    result is picked up by whichever check comes after it.
+        startEnforce(uuid);
+    }
+
+    private void startEnforce(UUID uuid) {
+        final NetworkNickConfig cfg = settings.get();
+        if (!cfg.enforceEnabled() || (!cfg.applyDisplayName() && !cfg.applyPlayerListName())) {
+            scheduler.runGlobal(() -> enforcer.cancel(uuid));
+            return;
+        }
+
+        scheduler.runGlobal(() -> enforcer.schedule(uuid, cfg.enforcePeriodTicks(), cfg.enforceMaxPeriodTicks(),
+                cfg.enforceContinuous() ? -1 : cfg.enforceDurationTicks()));
+    }
+
+    /**
+     * One enforcement check, run on the player's own thread (Folia: their region), where
+     * their names can be read and set: re-apply if another plugin overwrote the name since.
+     * The result goes back to the wheel's thread.
+     */
+    private void enforce(UUID uuid, Consumer<EnforceWheel.Result> done) {
+        Player p = Bukkit.getPlayer(uuid);
+        if (p == null || !p.isOnline()) {
+            done.accept(EnforceWheel.Result.GONE);
+            return;
+        }
+
+        // Dropped if the player leaves first; their quit takes them off the wheel
+        scheduler.runFor(p, () -> {
+            EnforceWheel.Result r = compare(p);
+            scheduler.runGlobal(() -> done.accept(r));
         });
     }
 
+    private EnforceWheel.Result compare(Player p) {
+        if (!p.isOnline()) return EnforceWheel.Result.GONE;
+        UUID uuid = p.getUniqueId();
+
+        // Nothing applied since join yet (truth-check still queued): don't push the real name over the pre-login one
+        if (service.getState(uuid) == null) return EnforceWheel.Result.WAITING;
+
+        final NetworkNickConfig cfg = settings.get();
+        final boolean doDisplay = cfg.applyDisplayName();
+        final boolean doList = cfg.applyPlayerListName();
+
+        // Always enforce the newest applied state, not the one enforcement started with
+        final String desiredColored = service.getRenderedName(uuid, p.getName()).legacy();
+        boolean needs = false;
+
+        if (doDisplay) {
+            try {
+                String cur = p.getDisplayName();
+                if (cur == null || !cur.equals(desiredColored)) needs = true;
+            } catch (Throwable ignored) {
+                needs = true;
+            }
+        }
+
+        if (doList) {
+            try {
+                String cur = p.getPlayerListName();
+                if (cur == null || !cur.equals(desiredColored)) needs = true;
+            } catch (Throwable ignored) {
+                needs = true;
+            }
+        }
+
+        if (!needs) return EnforceWheel.Result.INTACT;
+
+        service.reapply(p);
+        return EnforceWheel.Result.FIXED;
+    }
+
     @EventHandler(priority = EventPriority.MONITOR)
     public void onQuit(PlayerQuitEvent e) {
         UUID uuid = e.getPlayer().getUniqueId();
-        stopEnforce(uuid);
+        backend.get().quit(uuid);
+        scheduler.runGlobal(() -> enforcer.cancel(uuid));
         preloginCache.clear(uuid);
         service.clearFromCache(uuid);
     }
-
-    private void stopEnforce(UUID uuid) {
-        Integer id = enforceTasks.remove(uuid);
-        if (id != null) {
-            try { Bukkit.getScheduler().cancelTask(id); } catch (Throwable ignored) {}
-        }
-    }
 }
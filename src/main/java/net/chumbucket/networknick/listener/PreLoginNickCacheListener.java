@@ -10,7 +10,9 @@
 
 package net.chumbucket.networknick.listener;
 
-import net.chumbucket.networknick.redis.RedisBus;
+import net.chumbucket.networknick.service.NickState;
+import net.chumbucket.networknick.store.LocalSnapshot;
+import net.chumbucket.networknick.store.NickBackend;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
@@ -19,6 +21,7 @@ import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
  * Fetch nick from Redis before join completes so join message plugins
@@ -26,13 +29,15 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public final class PreLoginNickCacheListener implements Listener {
 
-    private final RedisBus redis;
+    private final Supplier<NickBackend> backend;
+    private final LocalSnapshot snapshot;
 
-    // UUID -> nick (null means "no nick")
-    private final Map<UUID, String> preloginNick = new ConcurrentHashMap<>();
+    // UUID -> full nick state (absent means "no nick")
+    private final Map<UUID, NickState> preloginState = new ConcurrentHashMap<>();
 
-    public PreLoginNickCacheListener(RedisBus redis) {
-        this.redis = redis;
+    public PreLoginNickCacheListener(Supplier<NickBackend> backend, LocalSnapshot snapshot) {
+        this.backend = backend;
+        this.snapshot = snapshot;
     }
 
     /**
@@ -43,20 +48,22 @@ public final class PreLoginNickCacheListener implements Listener {
         if (e.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
 
         UUID uuid = e.getUniqueId();
-        String nick = redis.getNick(uuid); // blocking is OK here (async event)
-        if (nick == null || nick.isBlank()) preloginNick.remove(uuid);
-        else preloginNick.put(uuid, nick);
+        NickState state = backend.get().getState(uuid); // blocking is OK here (async event)
+        // Store unreachable: fall back to the last nick this server saw for them, even from before a restart
+        if (state == null) state = snapshot.get(uuid);
+        if (state == null || !state.hasNick()) preloginState.remove(uuid);
+        else preloginState.put(uuid, state);
     }
 
     /**
-     * Pull nick once on join. Removes entry to prevent leaks.
+     * Pull state once on join. Removes entry to prevent leaks.
      */
-    public String pop(UUID uuid) {
+    public NickState pop(UUID uuid) {
         if (uuid == null) return null;
-        return preloginNick.remove(uuid);
+        return preloginState.remove(uuid);
     }
 
     public void clear(UUID uuid) {
-        if (uuid != null) preloginNick.remove(uuid);
+        if (uuid != null) preloginState.remove(uuid);
     }
 }
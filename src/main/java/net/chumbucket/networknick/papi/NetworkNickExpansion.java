@@ -11,23 +11,27 @@
 package net.chumbucket.networknick.papi;
 
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
-import net.chumbucket.networknick.redis.RedisBus;
+import net.chumbucket.networknick.NetworkNickConfig;
 import net.chumbucket.networknick.service.NickService;
+import net.chumbucket.networknick.store.NickBackend;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.util.UUID;
+import java.util.function.Supplier;
 
 public final class NetworkNickExpansion extends PlaceholderExpansion {
 
     private final JavaPlugin plugin;
+    private final Supplier<NetworkNickConfig> settings;
     private final NickService service;
-    private final RedisBus redis;
+    private final Supplier<NickBackend> backend;
 
-    public NetworkNickExpansion(JavaPlugin plugin, NickService service, RedisBus redis) {
+    public NetworkNickExpansion(JavaPlugin plugin, Supplier<NetworkNickConfig> settings, NickService service, Supplier<NickBackend> backend) {
         this.plugin = plugin;
+        this.settings = settings;
         this.service = service;
-        this.redis = redis;
+        this.backend = backend;
     }
 
     @Override public String getIdentifier() { return "networknick"; }
@@ -47,18 +51,51 @@ public final class NetworkNickExpansion extends PlaceholderExpansion {
         if (params.equalsIgnoreCase("unhidden")) {
             // If hidden, show prior nick (if exists), else show real name
             if (service.isHidden(uuid)) {
-                String prior = redis.getPriorNick(uuid);
-                if (prior != null && !prior.isBlank()) return prior;
-                return p.getName();
+                // Placeholders are resolved on the main thread: never hit Redis here,
+                // serve the cached prior nick and load it in the background on a miss.
+                String prior = service.getCachedPrior(uuid);
+                if (prior == null) {
+                    loadPrior(uuid);
+                    return p.getName();
+                }
+                return prior.isBlank() ? p.getName() : prior;
             }
             // Not hidden -> just normal visible
             return service.getVisibleName(uuid, p.getName());
         }
 
+        if (params.equalsIgnoreCase("name_plain")) {
+            // Visible name without color codes
+            return service.getRenderedName(uuid, p.getName()).plain();
+        }
+
         if (params.equalsIgnoreCase("hidden")) {
             return service.isHidden(uuid) ? "true" : "false";
         }
 
+        if (params.equalsIgnoreCase("hide_prefix")) {
+            // true while hidden and hide.hide-prefix is on: UI plugins should drop prefixes/suffixes
+            return settings.get().hidePrefix() && service.isHidden(uuid) ? "true" : "false";
+        }
+
+        if (params.equalsIgnoreCase("breaker")) {
+            // closed / open / half-open: whether nick storage is currently failing fast
+            NickBackend bus = backend.get();
+            return bus == null ? "" : bus.breakerState();
+        }
+
         return "";
     }
+
+    private void loadPrior(UUID uuid) {
+        if (!service.beginPriorLoad(uuid)) return;
+
+        NickBackend bus = backend.get();
+        if (bus == null) {
+            service.finishPriorLoad(uuid, null, false);
+            return;
+        }
+        bus.getStateInBackground(uuid).whenComplete((state, err) ->
+                service.finishPriorLoad(uuid, state == null ? null : state.prior(), err == null));
+    }
 }
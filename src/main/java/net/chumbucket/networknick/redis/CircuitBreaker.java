@@ -0,0 +1,172 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.redis;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Stops waiting on a Redis that is down or hanging. After {@code failure-threshold} failed
+ * or slow calls in a row the breaker opens and every call fails at once with
+ * {@link OpenException} instead of sitting out the socket timeout. After {@code open-ms}
+ * one probe call is let through (half-open): if it succeeds quickly the breaker closes,
+ * otherwise it opens again.
+ */
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /** Thrown instead of calling Redis while the breaker is open. */
+    static final class OpenException extends RuntimeException {
+        OpenException() {
+            super("Redis circuit breaker is open", null, false, false);
+        }
+    }
+
+    record Stats(State state, long opened, long rejected) {}
+
+    private final Logger log;
+    private final boolean enabled;
+    private final int failureThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final Predicate<Throwable> isFailure;
+    private final Runnable onClose;
+
+    // Guarded by this
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+    private boolean probing;
+    private long opened;
+    private long rejected;
+
+    /**
+     * @param isFailure which exceptions mean Redis is unhealthy (others, like script errors, mean it answered)
+     * @param onClose   run (outside the lock) when a probe succeeds and the breaker closes again
+     */
+    CircuitBreaker(Logger log, boolean enabled, int failureThreshold, long slowCallMs, long openMs,
+                   Predicate<Throwable> isFailure, Runnable onClose) {
+        this.log = log;
+        this.enabled = enabled;
+        this.failureThreshold = failureThreshold;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMs);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+        this.isFailure = isFailure;
+        this.onClose = onClose;
+    }
+
+    /** Run one Redis call through the breaker. */
+    <T> T call(Supplier<T> task) {
+        return call(task, true);
+    }
+
+    /**
+     * Run a bulk call (a large pipeline or SCAN page) through the breaker. Its duration grows
+     * with the batch, so only failures count against Redis, not slowness.
+     */
+    <T> T callBulk(Supplier<T> task) {
+        return call(task, false);
+    }
+
+    private <T> T call(Supplier<T> task, boolean timed) {
+        acquire();
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = task.get();
+            failed = false;
+            return result;
+        } catch (Throwable t) {
+            // An Error says nothing good about the call either; it must not leave a probe in flight
+            failed = t instanceof Error || isFailure.test(t);
+            throw t;
+        } finally {
+            record(timed ? System.nanoTime() - start : 0L, failed);
+        }
+    }
+
+    private synchronized void acquire() {
+        if (!enabled) return;
+
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                rejected++;
+                throw new OpenException();
+            }
+            state = State.HALF_OPEN;
+            probing = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probing) {
+                rejected++;
+                throw new OpenException();
+            }
+            probing = true;
+        }
+    }
+
+    private void record(long nanos, boolean failed) {
+        if (!enabled) return;
+
+        boolean bad = failed || nanos > slowCallNanos;
+        boolean closed = false;
+
+        synchronized (this) {
+            // Calls started before the breaker opened may finish afterwards; they don't count
+            if (state == State.OPEN) return;
+
+            if (!bad) {
+                failures = 0;
+                if (state == State.HALF_OPEN) {
+                    state = State.CLOSED;
+                    probing = false;
+                    closed = true;
+                }
+            } else if (state == State.HALF_OPEN || ++failures >= failureThreshold) {
+                trip();
+            }
+        }
+
+        if (closed) {
+            log.info("Redis is responding again; circuit breaker closed.");
+            onClose.run();
+        }
+    }
+
+    private void trip() {
+        if (state == State.CLOSED) {
+            log.warning("Redis calls keep failing or running slow; circuit breaker open, serving last-known nicks for "
+                    + TimeUnit.NANOSECONDS.toMillis(openNanos) + "ms at a time.");
+        }
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        probing = false;
+        failures = 0;
+        opened++;
+    }
+
+    synchronized State state() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) return State.HALF_OPEN;
+        return state;
+    }
+
+    synchronized Stats stats() {
+        return new Stats(state(), opened, rejected);
+    }
+
+    boolean enabled() {
+        return enabled;
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.redis;
+
+import net.chumbucket.networknick.service.NickState;
+import org.bukkit.plugin.java.JavaPlugin;
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Local LRU of player states kept correct by Redis server-assisted client-side caching
+ * (Redis 6+). A tracker connection runs {@code CLIENT TRACKING ON BCAST PREFIX <player-prefix>}
+ * redirected to a second connection subscribed to {@code __redis__:invalidate}, so any write
+ * to a player hash, from any server, evicts it here.
+ *
+ * Entries are only served while that invalidation stream is connected; on any disconnect
+ * the cache is emptied and every read goes to Redis until it is back. Entries also expire
+ * after {@code near-cache.ttl-seconds} as a backstop in case tracking silently stops.
+ */
+final class NearCache {
+
+    private static final String INVALIDATE_CHANNEL = "__redis__:invalidate";
+    private static final long RECONNECT_DELAY_MS = 2000L;
+
+    private record Entry(NickState state, long expiresAt) {}
+
+    private final JavaPlugin plugin;
+    private final String prefix;
+    private final int maxEntries;
+    private final long ttlMs;
+    private final Supplier<Jedis> connect;
+
+    private final LinkedHashMap<UUID, Entry> lru;
+
+    // Bumped on every invalidation; a read only caches its result if no invalidation raced it
+    private final AtomicLong epoch = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private volatile boolean running;
+    private volatile boolean live;
+    private volatile Jedis subscriber;
+    private Thread thread;
+
+    NearCache(JavaPlugin plugin, String prefix, int maxEntries, long ttlMs, Supplier<Jedis> connect) {
+        this.plugin = plugin;
+        this.prefix = prefix;
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+        this.connect = connect;
+
+        this.lru = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+                return size() > NearCache.this.maxEntries;
+            }
+        };
+    }
+
+    void start() {
+        if (running) return;
+        running = true;
+
+        thread = new Thread(this::listen, "NetworkNick-Tracking");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void stop() {
+        running = false;
+        live = false;
+
+        Jedis s = subscriber;
+        if (s != null) {
+            try { s.close(); } catch (Throwable ignored) {}
+        }
+        clear();
+    }
+
+    /** Cached state, or null on a miss (or while invalidations aren't flowing). */
+    NickState get(UUID uuid) {
+        if (!live) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        Entry e;
+        synchronized (lru) {
+            e = lru.get(uuid);
+            if (e != null && e.expiresAt() < System.currentTimeMillis()) {
+                lru.remove(uuid);
+                e = null;
+            }
+        }
+
+        if (e == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return e.state();
+    }
+
+    /** Take before reading from Redis; pass to {@link #put} afterwards. */
+    long stamp() {
+        return epoch.get();
+    }
+
+    /** Cache a state read from Redis, unless an invalidation arrived since {@code stamp}. */
+    void put(UUID uuid, NickState state, long stamp) {
+        if (!live || state == null) return;
+
+        synchronized (lru) {
+            if (epoch.get() != stamp) return;
+            lru.put(uuid, new Entry(state, System.currentTimeMillis() + ttlMs));
+        }
+    }
+
+    /** Drop one player (e.g. right after this server wrote them). */
+    void invalidate(UUID uuid) {
+        synchronized (lru) {
+            epoch.incrementAndGet();
+            lru.remove(uuid);
+        }
+    }
+
+    void clear() {
+        synchronized (lru) {
+            epoch.incrementAndGet();
+            lru.clear();
+        }
+    }
+
+    /** Counters for /networknick status. */
+    record Stats(boolean live, int size, long hits, long misses, long invalidations) {}
+
+    Stats stats() {
+        int size;
+        synchronized (lru) {
+            size = lru.size();
+        }
+        return new Stats(live, size, hits.get(), misses.get(), invalidations.get());
+    }
+
+    private void listen() {
+        while (running) {
+            try (Jedis sub = connect.get(); Jedis tracker = connect.get()) {
+                subscriber = sub;
+
+                long id = sub.clientId();
+                Connection conn = sub.getConnection();
+                conn.setTimeoutInfinite();
+                conn.sendCommand(Protocol.Command.SUBSCRIBE, INVALIDATE_CHANNEL);
+                conn.getObjectMultiBulkReply(); // subscribe confirmation
+
+                // BCAST: notified about every key under the prefix, whether or not we read it
+                tracker.sendCommand(Protocol.Command.CLIENT, "TRACKING", "ON",
+                        "REDIRECT", Long.toString(id), "BCAST", "PREFIX", prefix);
+
+                clear();
+                live = true;
+                plugin.getLogger().info("Near-cache tracking enabled for " + prefix + "*");
+
+                while (running) {
+                    onPush(conn.getObjectMultiBulkReply());
+                }
+            } catch (JedisDataException e) {
+                // Server refused CLIENT TRACKING (pre-6.0 or ACL): stay disabled, reads go to Redis
+                plugin.getLogger().warning("Near-cache disabled, Redis rejected CLIENT TRACKING: " + e.getMessage());
+                running = false;
+            } catch (Throwable t) {
+                if (running) plugin.getLogger().warning("Near-cache tracking connection lost: " + t.getMessage());
+            } finally {
+                live = false;
+                subscriber = null;
+                clear();
+            }
+
+            if (running) {
+                try { Thread.sleep(RECONNECT_DELAY_MS); } catch (InterruptedException ignored) {}
+            }
+        }
+    }
+
+    /** ["message", channel, [key, ...] | nil]; nil means the whole keyspace was flushed. */
+    private void onPush(List<Object> msg) {
+        if (msg == null || msg.size() < 3) return;
+        if (!(msg.get(0) instanceof byte[] kind) || !"message".equals(new String(kind, StandardCharsets.UTF_8))) return;
+
+        Object payload = msg.get(2);
+        if (!(payload instanceof List<?> keys)) {
+            invalidations.incrementAndGet();
+            clear();
+            return;
+        }
+
+        for (Object k : keys) {
+            if (!(k instanceof byte[] raw)) continue;
+            String key = new String(raw, StandardCharsets.UTF_8);
+            if (!key.startsWith(prefix)) continue;
+
+            invalidations.incrementAndGet();
+            try {
+                invalidate(UUID.fromString(key.substring(prefix.length())));
+            } catch (IllegalArgumentException ignored) {}
+        }
+    }
+}
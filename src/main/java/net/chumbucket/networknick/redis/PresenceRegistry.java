@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.redis;
+
+import redis.clients.jedis.UnifiedJedis;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Which server each online player is on, so an update can go to that server's own channel
+ * instead of every server. One Redis hash ({@code keys.presence}) maps UUID to server id;
+ * servers write their joins and quits into it as they happen.
+ *
+ * A quit only removes the entry if it still names this server, so a player switching servers
+ * can't have the new server's join undone by the old server's late quit. Players with no
+ * entry (or when the hash can't be read) get the broadcast channel, as before.
+ */
+final class PresenceRegistry {
+
+    // HDEL only if the player is still registered to us
+    private static final String LEAVE_SCRIPT = """
+            if redis.call('HGET', KEYS[1], ARGV[1]) == ARGV[2] then
+              return redis.call('HDEL', KEYS[1], ARGV[1])
+            end
+            return 0
+            """;
+
+    private static final int CHUNK = 256;
+
+    private final String key;
+    private final String serverId;
+    private final String broadcast;
+
+    private final AtomicLong routed = new AtomicLong();
+    private final AtomicLong broadcasts = new AtomicLong();
+
+    PresenceRegistry(String key, String serverId, String broadcast) {
+        this.key = key;
+        this.serverId = serverId;
+        this.broadcast = broadcast;
+    }
+
+    /** The channel only this server listens on (besides the broadcast channel). */
+    String ownChannel() {
+        return serverChannel(serverId);
+    }
+
+    private String serverChannel(String id) {
+        return broadcast + ":server:" + id;
+    }
+
+    void joined(UnifiedJedis j, UUID uuid) {
+        j.hset(key, uuid.toString(), serverId);
+    }
+
+    void left(UnifiedJedis j, UUID uuid) {
+        j.eval(LEAVE_SCRIPT, List.of(key), List.of(uuid.toString(), serverId));
+    }
+
+    /** Claim every given player for this server (after a reload or reconnect). */
+    void register(UnifiedJedis j, Collection<UUID> uuids) {
+        Map<String, String> batch = new HashMap<>();
+        for (UUID uuid : uuids) {
+            batch.put(uuid.toString(), serverId);
+            if (batch.size() >= CHUNK) {
+                j.hset(key, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) j.hset(key, batch);
+    }
+
+    /** Release every given player still registered to this server (on shutdown). */
+    void unregister(UnifiedJedis j, Collection<UUID> uuids) {
+        if (uuids.isEmpty()) return;
+        try (var pipe = j.pipelined()) {
+            for (UUID uuid : uuids) pipe.eval(LEAVE_SCRIPT, List.of(key), List.of(uuid.toString(), serverId));
+            pipe.sync();
+        }
+    }
+
+    /**
+     * Channel for each player: their server's own channel, or the broadcast channel if they
+     * aren't registered anywhere. One HMGET per {@value #CHUNK} players.
+     */
+    Map<UUID, String> channels(UnifiedJedis j, Collection<UUID> uuids) {
+        Map<UUID, String> out = new HashMap<>();
+        List<UUID> list = new ArrayList<>(uuids);
+
+        for (int from = 0; from < list.size(); from += CHUNK) {
+            List<UUID> chunk = list.subList(from, Math.min(list.size(), from + CHUNK));
+            String[] fields = new String[chunk.size()];
+            for (int i = 0; i < fields.length; i++) fields[i] = chunk.get(i).toString();
+
+            List<String> servers = j.hmget(key, fields);
+            for (int i = 0; i < fields.length; i++) {
+                String id = servers == null ? null : servers.get(i);
+                if (id == null || id.isEmpty()) {
+                    out.put(chunk.get(i), broadcast);
+                    broadcasts.incrementAndGet();
+                } else {
+                    out.put(chunk.get(i), serverChannel(id));
+                    routed.incrementAndGet();
+                }
+            }
+        }
+        return out;
+    }
+
+    /** Everything to the broadcast channel, e.g. when the hash couldn't be read. */
+    Map<UUID, String> broadcastAll(Collection<UUID> uuids) {
+        Map<UUID, String> out = new HashMap<>();
+        for (UUID uuid : uuids) out.put(uuid, broadcast);
+        broadcasts.addAndGet(uuids.size());
+        return out;
+    }
+
+    long routed() {
+        return routed.get();
+    }
+
+    long broadcasts() {
+        return broadcasts.get();
+    }
+}
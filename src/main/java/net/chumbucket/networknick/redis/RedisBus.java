@@ -10,67 +10,318 @@
 
 package net.chumbucket.networknick.redis;
 
-import net.chumbucket.networknick.service.NickService;
-import org.bukkit.Bukkit;
-import org.bukkit.entity.Player;
+import net.chumbucket.networknick.service.NickState;
+import net.chumbucket.networknick.store.NickStore;
+import net.chumbucket.networknick.store.UpdateCodec;
+import net.chumbucket.networknick.store.UpdateTransport;
 import org.bukkit.plugin.java.JavaPlugin;
-import redis.clients.jedis.DefaultJedisClientConfig;
-import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.BinaryJedisPubSub;
+import redis.clients.jedis.BinaryJedisShardedPubSub;
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.ConnectionPoolConfig;
 import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.resps.ScanResult;
+import redis.clients.jedis.util.Pool;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
-public final class RedisBus {
+/**
+ * {@code storage.type: redis}: the network-wide store and transport. State lives in one
+ * Redis hash per player, changed only by the Lua transitions in {@link RedisScripts};
+ * updates travel over pub/sub (or a stream) to every server.
+ */
+public final class RedisBus implements NickStore, UpdateTransport {
 
     private final JavaPlugin plugin;
-    private final NickService service;
 
-    private final String host;
-    private final int port;
-    private final String username;
-    private final String password;
-    private final boolean ssl;
-    private final int timeoutMs;
+    // standalone / sentinel / cluster
+    private final RedisTopology topology;
+
+    // HGETALLs per pipeline flush when loading many players at once
+    private static final int BULK_CHUNK = 256;
+    // SCAN page size for the legacy-key migrator
+    private static final int MIGRATE_SCAN_COUNT = 500;
 
+    private final String playerPrefix;
     private final String nickPrefix;
     private final String priorPrefix;
     private final String channel;
 
+    // Origin id stamped on every update frame; "both" also publishes the 1.0.x text payload
+    private final String serverId;
+    private final boolean legacyWire;
+
+    // 0 = each script publishes inline; otherwise updates are coalesced by the publisher
+    private static final long MAX_BATCH_WINDOW_MS = 250L;
+    private final long batchWindowMs;
+    private final UpdatePublisher publisher;
+
+    // sync.transport: "stream" sends frames through a capped Redis Stream instead of pub/sub
+    private final StreamTransport stream;
+    // True when Java (not the scripts) publishes: batching, the stream transport, sharded pub/sub or presence routing
+    private final boolean javaPublishes;
+
+    // sync.presence: routes each update to the player's server channel (null = broadcast everything)
+    private final PresenceRegistry presence;
+    private volatile Set<UUID> online = Set.of();
+
+    private final int poolMinIdle;
+    private final int poolMaxIdle;
+    private final int poolMaxTotal;
+    private final long poolMaxWaitMs;
+    private final long poolIdleEvictMs;
+    private final long poolEvictRunMs;
+
     private final AtomicBoolean running = new AtomicBoolean(false);
-    private Thread subThread;
-    private JedisPubSub pubSub;
+    private volatile Listener listener;
+    private final List<Thread> subThreads = new ArrayList<>();
+    private BinaryJedisPubSub pubSub;
+    private final List<BinaryJedisShardedPubSub> shardSubs = new ArrayList<>();
+
+    // Shared, bounded pool(s) for all request/response commands (the subscriber keeps its own socket)
+    private volatile UnifiedJedis pool;
+    private volatile boolean closed;
+    private final AtomicLong poolExhausted = new AtomicLong();
+    private final AtomicLong poolErrors = new AtomicLong();
 
-    public RedisBus(JavaPlugin plugin, NickService service) {
+    // The backend's I/O executor, for script preloading and journal replay
+    private final Executor io;
+
+    private final RedisScripts scripts = new RedisScripts();
+
+    // Optional CLIENT TRACKING near-cache for state reads (null = disabled)
+    private final NearCache nearCache;
+
+    // Nick writes that failed because Redis was unreachable (null = disabled, or couldn't open)
+    private volatile WriteJournal journal;
+    private final Object replayLock = new Object();
+
+    // Fails Redis calls fast while Redis is down or hanging (redis.breaker.*)
+    private final CircuitBreaker breaker;
+
+    // Last state seen per recently active player, served to reads Redis can't answer
+    private final int lastKnownMax;
+    private final LinkedHashMap<UUID, NickState> lastKnown;
+    private final AtomicLong servedLastKnown = new AtomicLong();
+
+    public RedisBus(JavaPlugin plugin, String serverId, Executor io) {
         this.plugin = Objects.requireNonNull(plugin, "plugin");
-        this.service = Objects.requireNonNull(service, "service");
+        this.serverId = Objects.requireNonNull(serverId, "serverId");
+        this.io = Objects.requireNonNull(io, "io");
 
-        host = plugin.getConfig().getString("redis.host", "127.0.0.1");
-        port = plugin.getConfig().getInt("redis.port", 6379);
-        username = plugin.getConfig().getString("redis.username", "");
-        password = plugin.getConfig().getString("redis.password", "");
-        ssl = plugin.getConfig().getBoolean("redis.ssl", false);
-        timeoutMs = plugin.getConfig().getInt("redis.timeout-ms", 4000);
+        topology = new RedisTopology(plugin.getConfig());
 
+        // One hash per player: nick, prior, hidden, version
+        playerPrefix = plugin.getConfig().getString("keys.player-prefix", "networknick:player:");
+        // Legacy string keys, only read by the migrator
         nickPrefix = plugin.getConfig().getString("keys.nick-prefix", "networknick:nick:");
-        // NEW: where we store "previous nick before hide"
         priorPrefix = plugin.getConfig().getString("keys.prior-prefix", "networknick:prior:");
         channel = plugin.getConfig().getString("keys.channel", "networknick:updates");
+
+        legacyWire = "both".equalsIgnoreCase(plugin.getConfig().getString("sync.wire-format", "binary"));
+        batchWindowMs = Math.min(MAX_BATCH_WINDOW_MS, Math.max(0L, plugin.getConfig().getLong("sync.batch-window-ms", 20L)));
+        publisher = new UpdatePublisher(plugin, serverId, batchWindowMs, legacyWire, this::route, this::publishFrame);
+
+        if ("stream".equalsIgnoreCase(plugin.getConfig().getString("sync.transport", "pubsub"))) {
+            String streamKey = plugin.getConfig().getString("keys.stream", "networknick:stream");
+            stream = new StreamTransport(plugin, streamKey,
+                    Math.max(100L, plugin.getConfig().getLong("sync.stream.max-length", 10000L)),
+                    Math.max(1, plugin.getConfig().getInt("sync.stream.read-count", 256)),
+                    Math.max(100L, plugin.getConfig().getLong("sync.stream.block-ms", 5000L)),
+                    () -> topology.forKey(pool(), streamKey), this::pool, this::deliver,
+                    () -> {
+                        Listener l = listener;
+                        if (l != null) l.onGap();
+                    });
+        } else {
+            stream = null;
+        }
+        boolean presenceWanted = plugin.getConfig().getBoolean("sync.presence.enabled", false);
+        if (presenceWanted && (stream != null || topology.sharded())) {
+            plugin.getLogger().warning("sync.presence needs sync.transport: pubsub without sharded pub/sub; broadcasting every update.");
+            presence = null;
+        } else if (presenceWanted) {
+            presence = new PresenceRegistry(plugin.getConfig().getString("keys.presence", "networknick:presence"), serverId, channel);
+        } else {
+            presence = null;
+        }
+
+        // Sharded channels live in their own slots, so scripts (bound to the player's slot) can't SPUBLISH;
+        // and only Java knows which server a player is on
+        javaPublishes = batchWindowMs > 0 || stream != null || topology.sharded() || presence != null;
+
+        poolMaxTotal = Math.max(1, plugin.getConfig().getInt("redis.pool.max-total", 16));
+        poolMaxIdle = Math.min(poolMaxTotal, Math.max(0, plugin.getConfig().getInt("redis.pool.max-idle", 8)));
+        poolMinIdle = Math.min(poolMaxIdle, Math.max(0, plugin.getConfig().getInt("redis.pool.min-idle", 1)));
+        poolMaxWaitMs = Math.max(0L, plugin.getConfig().getLong("redis.pool.max-wait-ms", 1000L));
+        poolIdleEvictMs = Math.max(1000L, plugin.getConfig().getLong("redis.pool.idle-evict-ms", 60000L));
+        poolEvictRunMs = Math.max(1000L, plugin.getConfig().getLong("redis.pool.evict-run-ms", 30000L));
+
+        if (plugin.getConfig().getBoolean("near-cache.enabled", false) && topology.cluster()) {
+            plugin.getLogger().warning("near-cache is not supported with redis.mode: cluster; reading from Redis directly.");
+            nearCache = null;
+        } else if (plugin.getConfig().getBoolean("near-cache.enabled", false)) {
+            int maxEntries = Math.max(16, plugin.getConfig().getInt("near-cache.max-entries", 4096));
+            long ttlMs = Math.max(1L, plugin.getConfig().getLong("near-cache.ttl-seconds", 300L)) * 1000L;
+            nearCache = new NearCache(plugin, playerPrefix, maxEntries, ttlMs, this::newJedis);
+        } else {
+            nearCache = null;
+        }
+
+        if (plugin.getConfig().getBoolean("journal.enabled", true)) {
+            journal = new WriteJournal(plugin, Math.max(1L, plugin.getConfig().getLong("journal.fsync-ms", 50L)));
+        }
+
+        breaker = new CircuitBreaker(plugin.getLogger(),
+                plugin.getConfig().getBoolean("redis.breaker.enabled", true),
+                Math.max(1, plugin.getConfig().getInt("redis.breaker.failure-threshold", 5)),
+                Math.max(1L, plugin.getConfig().getLong("redis.breaker.slow-call-ms", 1000L)),
+                Math.max(100L, plugin.getConfig().getLong("redis.breaker.open-ms", 5000L)),
+                RedisBus::isUnreachable, this::replayJournalAsync);
+
+        lastKnownMax = Math.max(0, plugin.getConfig().getInt("redis.breaker.last-known-entries", 4096));
+        lastKnown = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, NickState> eldest) {
+                return size() > lastKnownMax;
+            }
+        };
     }
 
+    /** Dedicated connection for long-lived blocking calls (SUBSCRIBE) that must not hold a pool slot. */
     private Jedis newJedis() {
-        DefaultJedisClientConfig.Builder b = DefaultJedisClientConfig.builder()
-                .timeoutMillis(timeoutMs)
-                .ssl(ssl);
+        return topology.dedicated(pool());
+    }
+
+    private UnifiedJedis pool() {
+        UnifiedJedis p = pool;
+        if (p != null) return p;
 
-        if (username != null && !username.isBlank()) b.user(username);
-        if (password != null && !password.isBlank()) b.password(password);
+        synchronized (this) {
+            if (closed) throw new IllegalStateException("RedisBus is stopped");
+            if (pool != null) return pool;
 
-        return new Jedis(new HostAndPort(host, port), b.build());
+            ConnectionPoolConfig cfg = new ConnectionPoolConfig();
+            cfg.setMaxTotal(poolMaxTotal);
+            cfg.setMaxIdle(poolMaxIdle);
+            cfg.setMinIdle(poolMinIdle);
+            cfg.setBlockWhenExhausted(true);
+            cfg.setMaxWait(Duration.ofMillis(poolMaxWaitMs));
+            cfg.setTestWhileIdle(true);
+            cfg.setMinEvictableIdleDuration(Duration.ofMillis(poolIdleEvictMs));
+            cfg.setTimeBetweenEvictionRuns(Duration.ofMillis(poolEvictRunMs));
+            cfg.setJmxEnabled(false);
+
+            pool = topology.open(cfg);
+            return pool;
+        }
+    }
+
+    /**
+     * Count a failed pooled call. Pool exhaustion surfaces as a wrapped
+     * NoSuchElementException once redis.pool.max-wait-ms runs out.
+     */
+    private void countFailure(Throwable t) {
+        if (t instanceof CircuitBreaker.OpenException) return; // counted by the breaker
+        for (Throwable c = t; c != null; c = c.getCause()) {
+            if (c instanceof NoSuchElementException) {
+                poolExhausted.incrementAndGet();
+                return;
+            }
+        }
+        poolErrors.incrementAndGet();
+    }
+
+    @Override
+    public String name() {
+        return "redis";
+    }
+
+    /** Topology, pool, journal, near-cache and batching lines for /networknick status. */
+    @Override
+    public void status(List<String> lines) {
+        String mode = topology.mode().name().toLowerCase(Locale.ROOT);
+        if (topology.sharded()) mode += ", sharded pub/sub x" + topology.pubSubShards();
+        lines.add("&7Redis: &f" + mode);
+
+        // Summed over every node's pool in cluster mode; sentinel pools aren't exposed, so they read as 0
+        UnifiedJedis p = pool;
+        int active = 0, idle = 0, waiters = 0, nodes = 0;
+        if (p != null) {
+            for (Pool<Connection> node : topology.pools(p)) {
+                active += node.getNumActive();
+                idle += node.getNumIdle();
+                waiters += node.getNumWaiters();
+                nodes++;
+            }
+        }
+        lines.add("&7Redis pool: &f" + active + "&7 active, &f" + idle + "&7 idle, &f" + waiters
+                + "&7 waiting (max &f" + poolMaxTotal * Math.max(1, nodes) + "&7)");
+        lines.add("&7Pool exhausted: &f" + poolExhausted.get() + "&7, errors: &f" + poolErrors.get());
+
+        if (breaker.enabled()) {
+            CircuitBreaker.Stats b = breaker.stats();
+            String state = switch (b.state()) {
+                case CLOSED -> "&aclosed";
+                case OPEN -> "&copen";
+                case HALF_OPEN -> "&ehalf-open";
+            };
+            lines.add("&7Circuit breaker: " + state + "&7, opened &f" + b.opened() + "&7x, &f" + b.rejected()
+                    + "&7 calls failed fast, &f" + servedLastKnown.get() + "&7 last-known reads served");
+        }
+
+        WriteJournal j = journal;
+        if (j != null && j.pendingPlayers() > 0) {
+            lines.add("&eWrite journal: &f" + j.pendingPlayers() + "&e player(s) waiting for Redis");
+        }
+
+        if (nearCache != null) {
+            NearCache.Stats cache = nearCache.stats();
+            long reads = cache.hits() + cache.misses();
+            long rate = reads == 0 ? 0 : cache.hits() * 100 / reads;
+            lines.add("&7Near-cache: " + (cache.live() ? "&aactive" : "&cnot tracking") + "&7, &f"
+                    + cache.size() + "&7 entries, &f" + rate + "%&7 hits (&f" + cache.hits() + "&7/&f" + reads
+                    + "&7), &f" + cache.invalidations() + "&7 invalidations");
+        }
+
+        if (presence != null) {
+            lines.add("&7Presence routing: &f" + presence.routed() + "&7 update(s) sent to one server, &f"
+                    + presence.broadcasts() + "&7 broadcast (player not registered)");
+        }
+
+        if (batchWindowMs > 0) {
+            UpdatePublisher.Stats pub = publisher.stats();
+            lines.add("&7Batched updates: &f" + pub.offered() + "&7 queued, &f" + pub.sent()
+                    + "&7 sent in &f" + pub.frames() + "&7 message(s) (window &f" + batchWindowMs + "ms&7)");
+        }
     }
 
+    @Override
     public void start() {
         // fail cleanly if jedis wasn't loaded by Libby
         try {
@@ -83,103 +334,712 @@ public final class RedisBus {
 
         if (!running.compareAndSet(false, true)) return;
 
-        pubSub = new JedisPubSub() {
-            @Override
-            public void onMessage(String ch, String message) {
-                if (!channel.equals(ch)) return;
+        if (journal != null) {
+            try {
+                journal.open();
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not open write journal, failed writes will not be kept: " + e.getMessage());
+                journal = null;
+            }
+        }
+
+        if (nearCache != null) nearCache.start();
 
-                String[] parts = message.split("\\|", 2);
-                if (parts.length < 1) return;
+        // Register the transition scripts up front so the first command doesn't pay for it
+        runAsync(() -> {
+            try {
+                guarded(() -> {
+                    scripts.loadAll(pool(), playerPrefix);
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                plugin.getLogger().warning("Redis SCRIPT LOAD failed (will retry on first use): " + e.getMessage());
+            }
+        });
+    }
 
-                UUID uuid;
-                try { uuid = UUID.fromString(parts[0]); }
-                catch (Exception ignored) { return; }
+    @Override
+    public void subscribe(Listener listener) {
+        if (!running.get()) return;
+        this.listener = listener;
+        this.online = listener.online();
 
-                String name = (parts.length == 2) ? parts[1] : "";
-                final String finalName = (name == null || name.isBlank()) ? null : name;
+        final byte[] channelBytes = channel.getBytes(StandardCharsets.UTF_8);
+        // With presence routing this server also listens on its own channel
+        final byte[][] channels = presence == null
+                ? new byte[][] { channelBytes }
+                : new byte[][] { channelBytes, presence.ownChannel().getBytes(StandardCharsets.UTF_8) };
+        pubSub = new BinaryJedisPubSub() {
+            @Override
+            public void onSubscribe(byte[] ch, int subscribedChannels) {
+                if (subscribedChannels != 1) return;
+                // (Re)connected: push anything written while Redis was away, and re-claim our players
+                replayJournalAsync();
+                if (presence != null) runAsync(RedisBus.this::registerOnline);
+            }
 
-                service.runSync(() -> {
-                    Player p = Bukkit.getPlayer(uuid);
-                    if (p != null && p.isOnline()) {
-                        service.applyToPlayer(p, finalName);
+            @Override
+            public void onMessage(byte[] ch, byte[] message) {
+                for (byte[] c : channels) {
+                    if (Arrays.equals(c, ch)) {
+                        deliver(List.of(message));
+                        return;
                     }
-                });
+                }
             }
         };
 
-        subThread = new Thread(() -> {
-            while (running.get()) {
+        if (topology.sharded()) {
+            // One SSUBSCRIBE per shard channel; each lives in its own slot, so on its own node
+            for (int shard = 0; shard < topology.pubSubShards(); shard++) {
+                final String shardChannel = topology.shardChannel(channel, shard);
+                final byte[] shardBytes = shardChannel.getBytes(StandardCharsets.UTF_8);
+                BinaryJedisShardedPubSub sub = new BinaryJedisShardedPubSub() {
+                    @Override
+                    public void onSSubscribe(byte[] ch, int subscribedChannels) {
+                        replayJournalAsync();
+                    }
+
+                    @Override
+                    public void onSMessage(byte[] ch, byte[] message) {
+                        deliver(List.of(message));
+                    }
+                };
+                shardSubs.add(sub);
+                startSubscriber("NetworkNick-RedisSub-" + shard, shardChannel,
+                        () -> ((JedisCluster) pool()).ssubscribe(sub, shardBytes));
+            }
+        } else if (topology.cluster()) {
+            // Classic pub/sub is broadcast cluster-wide, so any node will do
+            startSubscriber("NetworkNick-RedisSub", channel, () -> pool().subscribe(pubSub, channels));
+        } else {
+            startSubscriber("NetworkNick-RedisSub", channel, () -> {
                 try (Jedis j = newJedis()) {
-                    plugin.getLogger().info("Subscribing to Redis channel: " + channel);
-                    j.subscribe(pubSub, channel);
-                } catch (Throwable t) {
-                    plugin.getLogger().warning("Redis subscribe error: " + t.getMessage());
+                    j.subscribe(pubSub, channels);
+                }
+            });
+        }
+
+        if (stream != null) stream.start();
+    }
+
+    /** Run a blocking subscribe on its own daemon thread, resubscribing after errors until stop(). */
+    private void startSubscriber(String threadName, String channelName, Runnable subscribe) {
+        Thread t = new Thread(() -> {
+            while (running.get()) {
+                try {
+                    plugin.getLogger().info("Subscribing to Redis channel: " + channelName);
+                    subscribe.run();
+                } catch (Throwable e) {
+                    if (!running.get()) return;
+                    plugin.getLogger().warning("Redis subscribe error: " + e.getMessage());
                     try { Thread.sleep(2000L); } catch (InterruptedException ignored) {}
                 }
             }
-        }, "NetworkNick-RedisSub");
-        subThread.setDaemon(true);
-        subThread.start();
-
-        // On startup, load & apply for online players
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            for (Player p : Bukkit.getOnlinePlayers()) {
-                String nick = getNick(p.getUniqueId());
-                service.runSync(() -> service.applyToPlayer(p, nick));
-            }
-        });
+        }, threadName);
+        t.setDaemon(true);
+        t.start();
+        subThreads.add(t);
     }
 
-    public void stop() {
+    /**
+     * Decode received payloads and hand them to the listener as one batch. Binary frames
+     * carry the full state; legacy text only the nick (hidden inferred, prior unknown).
+     */
+    private void deliver(List<byte[]> payloads) {
+        Listener l = listener;
+        if (l == null) return;
+
+        List<UpdateCodec.Frame> frames = new ArrayList<>(payloads.size());
+        for (byte[] payload : payloads) {
+            UpdateCodec.Frame frame = UpdateCodec.decode(payload);
+            if (frame == null) continue;
+            frames.add(frame);
+            for (UpdateCodec.NickUpdate u : frame.updates()) remember(u.uuid(), u.state());
+        }
+        if (!frames.isEmpty()) l.onFrames(frames);
+    }
+
+    @Override
+    public void unsubscribe() {
         running.set(false);
+        listener = null;
         if (pubSub != null) {
             try { pubSub.unsubscribe(); } catch (Throwable ignored) {}
         }
+        for (BinaryJedisShardedPubSub sub : shardSubs) {
+            try { sub.sunsubscribe(); } catch (Throwable ignored) {}
+        }
+        if (stream != null) stream.stop();
     }
 
-    public String getNick(UUID uuid) {
-        try (Jedis j = newJedis()) {
-            return j.get(nickPrefix + uuid);
-        } catch (Throwable t) {
+    /** One last journal replay (and release of our players' presence) before the pool goes away. */
+    @Override
+    public void flush() {
+        WriteJournal j = journal;
+        if (j != null && j.hasPending()) replayJournal();
+
+        if (presence != null) {
+            try {
+                guarded(() -> {
+                    presence.unregister(pool(), List.copyOf(online));
+                    return null;
+                });
+            } catch (RuntimeException ignored) {
+                // other servers overwrite these entries as the players join them
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        running.set(false);
+        if (nearCache != null) nearCache.stop();
+        publisher.close();
+
+        WriteJournal j = journal;
+        if (j != null) {
+            if (j.hasPending()) plugin.getLogger().warning(j.pendingPlayers() + " player(s) still in the write journal; they will be sent on next start.");
+            j.close();
+        }
+
+        UnifiedJedis p;
+        synchronized (this) {
+            closed = true;
+            p = pool;
+            pool = null;
+        }
+        if (p != null) {
+            try { p.close(); } catch (Throwable ignored) {}
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Store API (called on the backend's I/O executor, never the tick thread)
+    // ---------------------------------------------------------------------
+
+    /** Current state; while Redis can't answer (or the breaker is open), the last state seen here. */
+    @Override
+    public NickState get(UUID uuid) {
+        try {
+            return counted(() -> readState(uuid));
+        } catch (RuntimeException e) {
+            NickState last = isUnreachable(e) ? lastKnown(uuid) : null;
+            if (last == null) throw e;
+            servedLastKnown.incrementAndGet();
+            return last;
+        }
+    }
+
+    /** Set (or with a blank nick, remove) the nick. Journaled locally if Redis is unreachable. */
+    @Override
+    public NickState set(UUID uuid, String nick) {
+        return counted(() -> write(new WriteJournal.Entry(WriteJournal.Op.SET, uuid, nick == null ? "" : nick)));
+    }
+
+    /** Remove the nick and any stored prior nick. Journaled locally if Redis is unreachable. */
+    @Override
+    public NickState clear(UUID uuid) {
+        return counted(() -> write(new WriteJournal.Entry(WriteJournal.Op.CLEAR, uuid, null)));
+    }
+
+    @Override
+    public Result toggleHide(UUID uuid, String hideNick) {
+        return counted(() -> {
+            requireJournalFlushed(uuid);
+            NickState state = toState(transition(RedisScripts.Script.TOGGLE_HIDE, uuid, hideNick));
+            remember(uuid, state);
+            return new Result(state, true);
+        });
+    }
+
+    @Override
+    public Result unhide(UUID uuid) {
+        return counted(() -> {
+            requireJournalFlushed(uuid);
+            Object reply = transition(RedisScripts.Script.UNHIDE, uuid);
+            NickState state = toState(reply);
+            if (state == null) return new Result(notHiddenState(reply), false);
+            remember(uuid, state);
+            return new Result(state, true);
+        });
+    }
+
+    /**
+     * Queue a state change for the other servers. Scripts publish inline unless Java does
+     * (batching, the stream transport or sharded pub/sub), in which case this goes through
+     * the {@link UpdatePublisher}.
+     */
+    @Override
+    public void publish(UUID uuid, NickState state) {
+        if (javaPublishes) publisher.offer(uuid, state);
+    }
+
+    // ---------------------------------------------------------------------
+    // Write-behind journal
+    // ---------------------------------------------------------------------
+
+    /**
+     * Apply a set/clear and return the new state. If Redis is unreachable the write goes to
+     * the journal instead and still counts as done (returning null, the state isn't known
+     * yet); while a player has journaled writes, later ones queue behind them so replay
+     * can't reorder anything.
+     */
+    private NickState write(WriteJournal.Entry e) {
+        WriteJournal j = journal;
+        if (j != null && j.isPending(e.uuid()) && !replayJournal()) {
+            appendToJournal(j, e);
+            return null;
+        }
+
+        NickState state;
+        try {
+            state = toState(applyEntry(e));
+        } catch (RuntimeException ex) {
+            if (j == null || !isUnreachable(ex)) throw ex;
+            countFailure(ex);
+            appendToJournal(j, e);
             return null;
         }
+        remember(e.uuid(), state);
+
+        if (j != null && j.hasPending()) replayJournalAsync();
+        return state;
     }
 
-    public void setNick(UUID uuid, String nameOrNull) {
-        try (Jedis j = newJedis()) {
-            String key = nickPrefix + uuid;
-            if (nameOrNull == null || nameOrNull.isBlank()) j.del(key);
-            else j.set(key, nameOrNull);
+    private Object applyEntry(WriteJournal.Entry e) {
+        if (e.op() == WriteJournal.Op.CLEAR) return transition(RedisScripts.Script.CLEAR, e.uuid());
+        return transition(RedisScripts.Script.SET, e.uuid(), e.nick());
+    }
 
-            j.publish(channel, uuid + "|" + (nameOrNull == null ? "" : nameOrNull));
-        } catch (Throwable t) {
-            plugin.getLogger().warning("Redis setNick error: " + t.getMessage());
+    private void appendToJournal(WriteJournal j, WriteJournal.Entry e) {
+        try {
+            j.append(e).join();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        plugin.getLogger().warning("Redis unreachable; journaled nick change for " + e.uuid() + " (" + j.pendingPlayers() + " pending)");
+    }
+
+    /** Hide/unhide depend on the stored state, so a player's journaled writes must land first. */
+    private void requireJournalFlushed(UUID uuid) {
+        WriteJournal j = journal;
+        if (j != null && j.isPending(uuid) && !replayJournal()) {
+            throw new IllegalStateException("Redis unreachable; earlier changes for " + uuid + " are still journaled");
         }
     }
 
-    // -------------------------
-    // NEW: prior nick functions
-    // -------------------------
+    /** Connection errors, pool exhaustion, and calls the open breaker refused. */
+    private static boolean isUnreachable(Throwable t) {
+        for (Throwable c = t; c != null; c = c.getCause()) {
+            if (c instanceof JedisConnectionException || c instanceof NoSuchElementException
+                    || c instanceof CircuitBreaker.OpenException) return true;
+        }
+        return false;
+    }
 
-    public String getPriorNick(UUID uuid) {
-        try (Jedis j = newJedis()) {
-            return j.get(priorPrefix + uuid);
-        } catch (Throwable t) {
+    private void replayJournalAsync() {
+        WriteJournal j = journal;
+        if (j == null || !j.hasPending()) return;
+
+        runAsync(this::replayJournal);
+    }
+
+    /**
+     * Send every journaled write to Redis in order, pipelined in chunks on one connection.
+     * Returns true once the journal is empty, false if Redis is still unreachable (try again later).
+     */
+    private boolean replayJournal() {
+        WriteJournal j = journal;
+        if (j == null) return true;
+
+        synchronized (replayLock) {
+            try {
+                while (j.hasPending()) {
+                    List<WriteJournal.Entry> batch = j.beginReplay();
+                    if (!batch.isEmpty()) {
+                        replayBatch(batch);
+                        plugin.getLogger().info("Replayed " + batch.size() + " journaled nick change(s) to Redis.");
+                    }
+                    j.finishReplay();
+                }
+                return true;
+            } catch (Throwable t) {
+                countFailure(t);
+                return false;
+            }
+        }
+    }
+
+    private void replayBatch(List<WriteJournal.Entry> batch) {
+        UnifiedJedis j = pool();
+        if (topology.cluster()) {
+            // Scripts are loaded per node; replay one by one so NOSCRIPT is retried on each
+            for (WriteJournal.Entry e : batch) {
+                try {
+                    NickState state = toState(applyEntry(e));
+                    if (state != null) {
+                        remember(e.uuid(), state);
+                        publish(e.uuid(), state);
+                    }
+                } catch (RuntimeException bad) {
+                    if (isUnreachable(bad)) throw bad;
+                    plugin.getLogger().warning("Dropping journaled nick change for " + e.uuid() + ": " + bad.getMessage());
+                }
+            }
+            return;
+        }
+
+        // Redis may have restarted and lost its script cache while we were cut off
+        String[] shas = guarded(() -> {
+            scripts.loadAll(j, playerPrefix);
+            return new String[] {
+                    scripts.sha(j, RedisScripts.Script.SET, playerPrefix),
+                    scripts.sha(j, RedisScripts.Script.CLEAR, playerPrefix)
+            };
+        });
+        String setSha = shas[0];
+        String clearSha = shas[1];
+
+        for (int from = 0; from < batch.size(); from += BULK_CHUNK) {
+            int to = Math.min(batch.size(), from + BULK_CHUNK);
+
+            final int first = from, last = to;
+            List<Response<Object>> replies = guardedBulk(() -> {
+                List<Response<Object>> out = new ArrayList<>(last - first);
+                try (var pipe = j.pipelined()) {
+                    for (int i = first; i < last; i++) {
+                        WriteJournal.Entry e = batch.get(i);
+                        List<String> keys = List.of(playerKey(e.uuid()));
+                        out.add(e.op() == WriteJournal.Op.CLEAR
+                                ? pipe.evalsha(clearSha, keys, scriptArgs(e.uuid()))
+                                : pipe.evalsha(setSha, keys, scriptArgs(e.uuid(), e.nick())));
+                    }
+                    pipe.sync();
+                }
+                return out;
+            });
+
+            for (int i = from; i < to; i++) {
+                UUID uuid = batch.get(i).uuid();
+                Object reply;
+                try {
+                    reply = replies.get(i - from).get();
+                } catch (RuntimeException bad) {
+                    if (isUnreachable(bad)) throw bad;
+                    // A record Redis rejects will never succeed; don't let it block the rest
+                    plugin.getLogger().warning("Dropping journaled nick change for " + uuid + ": " + bad.getMessage());
+                    continue;
+                }
+
+                if (nearCache != null) nearCache.invalidate(uuid);
+                NickState state = toState(reply);
+                if (state != null) {
+                    remember(uuid, state);
+                    publish(uuid, state);
+                }
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Transitions
+    // ---------------------------------------------------------------------
+
+    /** Run a transition script; the caller publishes the resulting state. */
+    private Object transition(RedisScripts.Script script, UUID uuid, String... extraArgs) {
+        Object reply = runScript(script, uuid, extraArgs);
+        if (nearCache != null) nearCache.invalidate(uuid);
+        return reply;
+    }
+
+    private Object runScript(RedisScripts.Script script, UUID uuid, String... extraArgs) {
+        return guarded(() -> scripts.call(pool(), script, List.of(playerKey(uuid)), scriptArgs(uuid, extraArgs)));
+    }
+
+    private List<String> scriptArgs(UUID uuid, String... extraArgs) {
+        List<String> args = new ArrayList<>(5 + extraArgs.length);
+        args.add(channel);
+        args.add(uuid.toString());
+        args.add(serverId);
+        args.add(Long.toString(System.currentTimeMillis()));
+        args.add(javaPublishes ? "none" : legacyWire ? "both" : "binary");
+        args.addAll(Arrays.asList(extraArgs));
+        return args;
+    }
+
+    /** The untouched state from an UNHIDE on a player who isn't hidden: {0, nick, version} (no prior). */
+    private static NickState notHiddenState(Object reply) {
+        if (!(reply instanceof List<?> list) || list.size() < 3) {
+            throw new IllegalStateException("Unexpected script reply: " + reply);
+        }
+        return new NickState((String) list.get(1), null, false, ((Number) list.get(2)).longValue());
+    }
+
+    /** New state from a transition reply, or null if nothing changed (UNHIDE on a player who isn't hidden). */
+    private static NickState toState(Object reply) {
+        if (!(reply instanceof List<?> list) || list.size() < 5) return null;
+        if (((Number) list.get(0)).longValue() == RedisScripts.NOT_HIDDEN) return null;
+
+        return new NickState(
+                (String) list.get(1),
+                (String) list.get(3),
+                ((Number) list.get(4)).longValue() == 1L,
+                ((Number) list.get(2)).longValue()
+        );
+    }
+
+    /**
+     * {@link UpdatePublisher} sink: one XADD, SPUBLISH (to the frame's shard channel) or PUBLISH
+     * per frame, plus legacy text (always classic pub/sub) when enabled.
+     */
+    private void publishFrame(String target, byte[] frame, List<String> legacy) {
+        guarded(() -> {
+            UnifiedJedis j = pool();
+            if (stream != null) stream.publish(frame);
+            else if (topology.sharded()) j.spublish(target.getBytes(StandardCharsets.UTF_8), frame);
+            else j.publish(target.getBytes(StandardCharsets.UTF_8), frame);
+            for (String line : legacy) j.publish(channel, line);
             return null;
+        });
+    }
+
+    /**
+     * {@link UpdatePublisher} router: the player's server channel with presence routing (the
+     * broadcast channel if they aren't registered or the registry can't be read), otherwise
+     * their shard channel or the broadcast channel.
+     */
+    private Map<UUID, String> route(Collection<UUID> uuids) {
+        if (presence != null) {
+            try {
+                return guarded(() -> presence.channels(pool(), uuids));
+            } catch (RuntimeException e) {
+                countFailure(e);
+                return presence.broadcastAll(uuids);
+            }
         }
+
+        Map<UUID, String> out = new HashMap<>();
+        for (UUID uuid : uuids) {
+            out.put(uuid, topology.sharded() ? topology.shardChannel(channel, topology.shardOf(uuid)) : channel);
+        }
+        return out;
     }
 
-    public void setPriorNick(UUID uuid, String nickOrNull) {
-        try (Jedis j = newJedis()) {
-            String key = priorPrefix + uuid;
-            if (nickOrNull == null || nickOrNull.isBlank()) j.del(key);
-            else j.set(key, nickOrNull);
-        } catch (Throwable t) {
-            plugin.getLogger().warning("Redis setPriorNick error: " + t.getMessage());
+    @Override
+    public void playerJoined(UUID uuid) {
+        if (presence == null) return;
+        try {
+            guarded(() -> {
+                presence.joined(pool(), uuid);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // Updates for them may go to their previous server until we re-register on reconnect
+            countFailure(e);
+        }
+    }
+
+    @Override
+    public void playerLeft(UUID uuid) {
+        if (presence == null) return;
+        try {
+            guarded(() -> {
+                presence.left(pool(), uuid);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            countFailure(e);
+        }
+    }
+
+    /** Claim every player on this server again, e.g. after a reconnect. */
+    private void registerOnline() {
+        try {
+            guarded(() -> {
+                presence.register(pool(), List.copyOf(online));
+                return null;
+            });
+        } catch (RuntimeException e) {
+            countFailure(e);
+            plugin.getLogger().warning("Could not register online players for presence routing: " + e.getMessage());
+        }
+    }
+
+    /** One Redis round trip (or pipeline flush) through the circuit breaker. */
+    private <T> T guarded(Supplier<T> call) {
+        return breaker.call(call);
+    }
+
+    /** A bulk pipeline or SCAN page through the breaker: failures count, its duration doesn't. */
+    private <T> T guardedBulk(Supplier<T> call) {
+        return breaker.callBulk(call);
+    }
+
+    /** Keep the newest state seen for a player, for reads made while Redis can't answer. */
+    private void remember(UUID uuid, NickState state) {
+        if (state == null || lastKnownMax == 0) return;
+        synchronized (lastKnown) {
+            NickState cur = lastKnown.get(uuid);
+            if (cur == null || state.version() >= cur.version()) lastKnown.put(uuid, state);
         }
     }
 
-    public void clearPriorNick(UUID uuid) {
-        setPriorNick(uuid, null);
+    private NickState lastKnown(UUID uuid) {
+        synchronized (lastKnown) {
+            return lastKnown.get(uuid);
+        }
+    }
+
+    @Override
+    public String breakerState() {
+        return breaker.state().name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    /** Run a store call, counting any failure for /networknick status before rethrowing it. */
+    private <T> T counted(Supplier<T> task) {
+        try {
+            return task.get();
+        } catch (RuntimeException e) {
+            countFailure(e);
+            throw e;
+        }
+    }
+
+    private void runAsync(Runnable task) {
+        try {
+            io.execute(task);
+        } catch (RejectedExecutionException stopped) {
+            // backend is shutting down; the journal keeps anything unsent for next start
+        }
+    }
+
+    /**
+     * Bulk state lookup: HGETALLs pipelined in chunks of {@link #BULK_CHUNK}, one round trip per chunk.
+     * Every UUID that was fetched successfully is present in the result (players without a nick map to
+     * {@link NickState#EMPTY}). UUIDs from a failed chunk are left out entirely so callers don't mistake
+     * "Redis error" for "no nick".
+     */
+    @Override
+    public Map<UUID, NickState> getAll(Collection<UUID> uuids) {
+        Map<UUID, NickState> out = new HashMap<>();
+        if (uuids == null || uuids.isEmpty()) return out;
+
+        List<UUID> list = new ArrayList<>(uuids.size());
+        for (UUID uuid : uuids) {
+            NickState cached = nearCache == null ? null : nearCache.get(uuid);
+            if (cached != null) out.put(uuid, cached);
+            else list.add(uuid);
+        }
+
+        for (int from = 0; from < list.size(); from += BULK_CHUNK) {
+            int to = Math.min(list.size(), from + BULK_CHUNK);
+
+            long stamp = nearCache == null ? 0L : nearCache.stamp();
+            List<UUID> chunk = list.subList(from, to);
+            try {
+                List<Response<Map<String, String>>> replies = guardedBulk(() -> {
+                    List<Response<Map<String, String>>> rs = new ArrayList<>(chunk.size());
+                    try (var pipe = pool().pipelined()) {
+                        for (UUID uuid : chunk) rs.add(pipe.hgetAll(playerKey(uuid)));
+                        pipe.sync();
+                    }
+                    return rs;
+                });
+
+                for (int i = 0; i < chunk.size(); i++) {
+                    NickState state = NickState.fromHash(replies.get(i).get());
+                    out.put(chunk.get(i), state);
+                    remember(chunk.get(i), state);
+                    if (nearCache != null) nearCache.put(chunk.get(i), state, stamp);
+                }
+            } catch (Throwable t) {
+                countFailure(t);
+                if (!(t instanceof CircuitBreaker.OpenException)) plugin.getLogger().warning("Redis getStates error: " + t.getMessage());
+                if (!isUnreachable(t)) continue;
+                for (UUID uuid : chunk) {
+                    NickState last = lastKnown(uuid);
+                    if (last == null) continue;
+                    out.put(uuid, last);
+                    servedLastKnown.incrementAndGet();
+                }
+            }
+        }
+        return out;
+    }
+
+    // ---------------------------------------------------------------------
+    // Legacy schema migration
+    // ---------------------------------------------------------------------
+
+    /**
+     * Copy every player from the legacy nick/prior string keys into per-player hashes while the
+     * network keeps running: SCAN the legacy nick keys page by page and pipeline one MIGRATE script
+     * per key. Players that already have a hash are left alone, so this is safe to re-run.
+     *
+     * @param deleteLegacy also delete the legacy keys once copied
+     * @return number of players migrated
+     */
+    @Override
+    public long migrateLegacy(boolean deleteLegacy) {
+        if (topology.cluster()) {
+            // 1.0.x never ran on a cluster, and the legacy keys couldn't share a slot with the hash anyway
+            throw new IllegalStateException("legacy migration is not available in cluster mode");
+        }
+
+        return counted(() -> {
+            UnifiedJedis j = pool();
+            String sha = guarded(() -> scripts.sha(j, RedisScripts.Script.MIGRATE, playerPrefix));
+            List<String> args = List.of(deleteLegacy ? "1" : "0");
+
+            ScanParams params = new ScanParams().match(nickPrefix + "*").count(MIGRATE_SCAN_COUNT);
+            String cursor = ScanParams.SCAN_POINTER_START;
+            long migrated = 0L;
+
+            do {
+                final String at = cursor;
+                ScanResult<String> page = guardedBulk(() -> j.scan(at, params));
+                cursor = page.getCursor();
+
+                List<Response<Object>> replies = guardedBulk(() -> {
+                    List<Response<Object>> rs = new ArrayList<>();
+                    try (var pipe = j.pipelined()) {
+                        for (String legacyKey : page.getResult()) {
+                            String id = legacyKey.substring(nickPrefix.length());
+                            try { UUID.fromString(id); } catch (IllegalArgumentException ignored) { continue; }
+
+                            rs.add(pipe.evalsha(sha, List.of(playerPrefix + id, legacyKey, priorPrefix + id), args));
+                        }
+                        pipe.sync();
+                    }
+                    return rs;
+                });
+
+                for (Response<Object> r : replies) {
+                    if (r.get() instanceof Number n) migrated += n.longValue();
+                }
+            } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+
+            return migrated;
+        });
+    }
+
+    // ---------------------------------------------------------------------
+    // Raw key access (throws on failure; callers decide how to report)
+    // ---------------------------------------------------------------------
+
+    private String playerKey(UUID uuid) {
+        return topology.playerKey(playerPrefix, uuid);
+    }
+
+    private NickState readState(UUID uuid) {
+        NickState cached = nearCache == null ? null : nearCache.get(uuid);
+        if (cached != null) return cached;
+
+        long stamp = nearCache == null ? 0L : nearCache.stamp();
+        NickState state = NickState.fromHash(guarded(() -> pool().hgetAll(playerKey(uuid))));
+        if (nearCache != null) nearCache.put(uuid, state, stamp);
+        remember(uuid, state);
+        return state;
     }
 }
@@ -0,0 +1,215 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.redis;
+
+import net.chumbucket.networknick.store.UpdateCodec;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Server-side Lua for every nick transition. Each script reads, writes and publishes
+ * in one atomic EVALSHA, so a command costs one round trip and two servers acting on
+ * the same player can't interleave.
+ *
+ * Transition layout:
+ *   KEYS[1] = player hash (fields match {@link net.chumbucket.networknick.service.NickState})
+ *   ARGV[1] = update channel, ARGV[2] = player uuid, ARGV[3] = origin server id,
+ *   ARGV[4] = timestamp (epoch millis), ARGV[6] = new nick (set/hide only)
+ *   ARGV[5] = publish mode: "binary", "both" (binary + legacy "uuid|nick" text), or
+ *             "none" when {@link UpdatePublisher} sends the update from Java instead
+ *             (batching, or the stream transport)
+ *
+ * Every transition bumps the hash "version", publishes the full new state as an
+ * {@link UpdateCodec} frame and replies {status, nick, version, prior, hidden}.
+ */
+final class RedisScripts {
+
+    /** Status codes returned as the first element of every transition reply. */
+    static final long NOT_HIDDEN = 0L;
+    static final long UNHIDDEN = 1L;
+    static final long HIDDEN = 2L;
+    static final long SET = 3L;
+
+    private static final String PRELUDE = """
+            local function field(name)
+              local v = redis.call('HGET', KEYS[1], name)
+              if type(v) == 'string' and string.match(v, '%S') then return v end
+              return nil
+            end
+            local function u16(n)
+              return string.char(math.floor(n / 256) % 256, n % 256)
+            end
+            local function i64(n)
+              local b = {}
+              for i = 8, 1, -1 do
+                b[i] = n % 256
+                n = math.floor(n / 256)
+              end
+              return string.char(unpack(b))
+            end
+            local function uuid_bytes(u)
+              return (string.gsub(string.gsub(u, '-', ''), '%x%x', function(h) return string.char(tonumber(h, 16)) end))
+            end
+            local function publish(v, nick, prior, hidden)
+              local flags = 0
+              if hidden then flags = flags + 1 end
+              if nick then flags = flags + 2 end
+              if prior then flags = flags + 4 end
+              local msg = string.char(167, 1) .. i64(tonumber(ARGV[4])) .. string.char(#ARGV[3]) .. ARGV[3]
+                .. u16(1) .. uuid_bytes(ARGV[2]) .. string.char(flags) .. i64(v)
+              if nick then msg = msg .. u16(#nick) .. nick end
+              if prior then msg = msg .. u16(#prior) .. prior end
+              redis.call('PUBLISH', ARGV[1], msg)
+              if ARGV[5] == 'both' then
+                redis.call('PUBLISH', ARGV[1], ARGV[2] .. '|' .. (nick or ''))
+              end
+            end
+            local function commit(status, nick)
+              local v = redis.call('HINCRBY', KEYS[1], 'version', 1)
+              local prior = field('prior')
+              local hidden = redis.call('HGET', KEYS[1], 'hidden') == '1'
+              if ARGV[5] ~= 'none' then publish(v, field('nick'), prior, hidden) end
+              return {status, nick or '', v, prior or '', hidden and 1 or 0}
+            end
+            local function restore_prior()
+              local prior = field('prior')
+              if prior then
+                redis.call('HSET', KEYS[1], 'nick', prior, 'hidden', '0')
+              else
+                redis.call('HDEL', KEYS[1], 'nick')
+                redis.call('HSET', KEYS[1], 'hidden', '0')
+              end
+              redis.call('HDEL', KEYS[1], 'prior')
+              return commit(1, prior)
+            end
+            """;
+
+    enum Script {
+        /** Set (or with a blank ARGV[6], remove) the nick. Leaves the prior nick alone. */
+        SET("""
+                local nick = ARGV[6]
+                if string.match(nick, '%S') then
+                  redis.call('HSET', KEYS[1], 'nick', nick, 'hidden', '0')
+                else
+                  redis.call('HDEL', KEYS[1], 'nick')
+                  redis.call('HSET', KEYS[1], 'hidden', '0')
+                  nick = nil
+                end
+                return commit(3, nick)
+                """),
+
+        /** Remove both the nick and the prior nick (the version survives). */
+        CLEAR("""
+                redis.call('HDEL', KEYS[1], 'nick', 'prior')
+                redis.call('HSET', KEYS[1], 'hidden', '0')
+                return commit(3, nil)
+                """),
+
+        /** Restore the prior nick (or real name) if hidden; otherwise report NOT_HIDDEN untouched. */
+        UNHIDE("""
+                if redis.call('HGET', KEYS[1], 'hidden') ~= '1' then
+                  return {0, field('nick') or '', tonumber(redis.call('HGET', KEYS[1], 'version') or '0')}
+                end
+                return restore_prior()
+                """),
+
+        /** /hide toggle: unhide when hidden, else save the current nick as prior and hide as ARGV[6]. */
+        TOGGLE_HIDE("""
+                if redis.call('HGET', KEYS[1], 'hidden') == '1' then
+                  return restore_prior()
+                end
+                local cur = field('nick')
+                if cur then
+                  redis.call('HSET', KEYS[1], 'prior', cur)
+                else
+                  redis.call('HDEL', KEYS[1], 'prior')
+                end
+                redis.call('HSET', KEYS[1], 'nick', ARGV[6], 'hidden', '1')
+                return commit(2, ARGV[6])
+                """),
+
+        /**
+         * Copy one player from the legacy string keys into their hash.
+         *   KEYS[1] = player hash, KEYS[2] = legacy nick key, KEYS[3] = legacy prior key
+         *   ARGV[1] = "1" to delete the legacy keys afterwards
+         * Never overwrites a hash that already exists. Replies 1 if migrated, else 0.
+         * "\194\167" is the UTF-8 encoding of '§'.
+         */
+        MIGRATE("""
+                local migrated = 0
+                if redis.call('EXISTS', KEYS[1]) == 0 then
+                  local nick = redis.call('GET', KEYS[2])
+                  local prior = redis.call('GET', KEYS[3])
+                  if type(nick) == 'string' or type(prior) == 'string' then
+                    local hidden = '0'
+                    if type(nick) == 'string' then
+                      local t = string.match(nick, '^%s*(.-)%s*$')
+                      if string.sub(t, 1, 2) == '&k' or string.sub(t, 1, 3) == '\\194\\167k' then hidden = '1' end
+                      redis.call('HSET', KEYS[1], 'nick', nick)
+                    end
+                    if type(prior) == 'string' then redis.call('HSET', KEYS[1], 'prior', prior) end
+                    redis.call('HSET', KEYS[1], 'hidden', hidden, 'version', '1')
+                    migrated = 1
+                  end
+                end
+                if ARGV[1] == '1' then redis.call('DEL', KEYS[2], KEYS[3]) end
+                return migrated
+                """);
+
+        final String source;
+
+        Script(String body) {
+            this.source = PRELUDE + body;
+        }
+    }
+
+    private final Map<Script, String> shas = new EnumMap<>(Script.class);
+
+    /** SCRIPT LOAD every transition once (e.g. right after connecting). */
+    void loadAll(UnifiedJedis j, String sampleKey) {
+        for (Script s : Script.values()) load(j, s, sampleKey);
+    }
+
+    private String load(UnifiedJedis j, Script s, String sampleKey) {
+        String sha = j.scriptLoad(s.source, sampleKey);
+        synchronized (shas) {
+            shas.put(s, sha);
+        }
+        return sha;
+    }
+
+    /** SHA of a loaded script, loading it first if needed (for pipelined EVALSHA). */
+    String sha(UnifiedJedis j, Script s, String sampleKey) {
+        String sha;
+        synchronized (shas) {
+            sha = shas.get(s);
+        }
+        return sha != null ? sha : load(j, s, sampleKey);
+    }
+
+    /**
+     * EVALSHA the script. If Redis lost it (restart, failover, SCRIPT FLUSH) it is
+     * reloaded and retried once.
+     */
+    Object call(UnifiedJedis j, Script s, List<String> keys, List<String> args) {
+        String sha = sha(j, s, keys.get(0));
+
+        try {
+            return j.evalsha(sha, keys, args);
+        } catch (JedisNoScriptException e) {
+            return j.evalsha(load(j, s, keys.get(0)), keys, args);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.redis;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.ConnectionPool;
+import redis.clients.jedis.ConnectionPoolConfig;
+import redis.clients.jedis.DefaultJedisClientConfig;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisClientConfig;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.JedisSentineled;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.util.JedisClusterCRC16;
+import redis.clients.jedis.util.Pool;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Where Redis lives ({@code redis.mode}) and how to reach it:
+ * <ul>
+ *   <li>standalone: one {@code redis.host}/{@code redis.port}</li>
+ *   <li>sentinel: the current master of {@code redis.sentinel.master}, following failovers</li>
+ *   <li>cluster: every node, player keys hash-tagged per UUID, optional sharded pub/sub</li>
+ * </ul>
+ */
+final class RedisTopology {
+
+    enum Mode { STANDALONE, SENTINEL, CLUSTER }
+
+    private final Mode mode;
+    private final HostAndPort standalone;
+    private final JedisClientConfig clientConfig;
+
+    private final String sentinelMaster;
+    private final Set<HostAndPort> sentinels;
+    private final JedisClientConfig sentinelClientConfig;
+
+    private final Set<HostAndPort> clusterNodes;
+    private final int clusterMaxAttempts;
+    private final boolean shardedPubSub;
+    private final int pubSubShards;
+
+    RedisTopology(FileConfiguration cfg) {
+        mode = switch (cfg.getString("redis.mode", "standalone").toLowerCase(Locale.ROOT)) {
+            case "sentinel" -> Mode.SENTINEL;
+            case "cluster" -> Mode.CLUSTER;
+            default -> Mode.STANDALONE;
+        };
+
+        standalone = new HostAndPort(cfg.getString("redis.host", "127.0.0.1"), cfg.getInt("redis.port", 6379));
+        int timeoutMs = cfg.getInt("redis.timeout-ms", 4000);
+        boolean ssl = cfg.getBoolean("redis.ssl", false);
+        clientConfig = clientConfig(cfg.getString("redis.username", ""), cfg.getString("redis.password", ""), ssl, timeoutMs);
+
+        sentinelMaster = cfg.getString("redis.sentinel.master", "mymaster");
+        sentinels = nodes(cfg.getStringList("redis.sentinel.nodes"));
+        sentinelClientConfig = clientConfig(cfg.getString("redis.sentinel.username", ""),
+                cfg.getString("redis.sentinel.password", ""), ssl, timeoutMs);
+
+        clusterNodes = nodes(cfg.getStringList("redis.cluster.nodes"));
+        clusterMaxAttempts = Math.max(1, cfg.getInt("redis.cluster.max-attempts", 5));
+        shardedPubSub = cfg.getBoolean("redis.cluster.sharded-pubsub", true);
+        pubSubShards = Math.max(1, cfg.getInt("redis.cluster.pubsub-shards", 4));
+
+        if (mode == Mode.SENTINEL && sentinels.isEmpty()) throw new IllegalArgumentException("redis.sentinel.nodes is empty");
+        if (mode == Mode.CLUSTER && clusterNodes.isEmpty()) throw new IllegalArgumentException("redis.cluster.nodes is empty");
+    }
+
+    private static JedisClientConfig clientConfig(String username, String password, boolean ssl, int timeoutMs) {
+        DefaultJedisClientConfig.Builder b = DefaultJedisClientConfig.builder()
+                .timeoutMillis(timeoutMs)
+                .ssl(ssl);
+
+        if (username != null && !username.isBlank()) b.user(username);
+        if (password != null && !password.isBlank()) b.password(password);
+
+        return b.build();
+    }
+
+    private static Set<HostAndPort> nodes(List<String> specs) {
+        Set<HostAndPort> out = new LinkedHashSet<>();
+        for (String s : specs) {
+            if (s != null && !s.isBlank()) out.add(HostAndPort.from(s.trim()));
+        }
+        return out;
+    }
+
+    Mode mode() {
+        return mode;
+    }
+
+    boolean cluster() {
+        return mode == Mode.CLUSTER;
+    }
+
+    /** Cluster with Redis 7 sharded pub/sub (SPUBLISH/SSUBSCRIBE). */
+    boolean sharded() {
+        return mode == Mode.CLUSTER && shardedPubSub;
+    }
+
+    /** Number of sharded update channels, so fan-out spreads over that many slots. */
+    int pubSubShards() {
+        return sharded() ? pubSubShards : 1;
+    }
+
+    /** Shard channel for one player: {@code <channel>{<n>}}. */
+    String shardChannel(String channel, int shard) {
+        return channel + "{" + shard + "}";
+    }
+
+    int shardOf(UUID uuid) {
+        return Math.floorMod(uuid.hashCode(), pubSubShards());
+    }
+
+    /**
+     * Key for one player's state. In cluster mode the UUID is hash-tagged so everything
+     * keyed by that player hashes to one slot (multi-key scripts stay legal).
+     */
+    String playerKey(String prefix, UUID uuid) {
+        return cluster() ? prefix + "{" + uuid + "}" : prefix + uuid;
+    }
+
+    /** The shared command client for this topology, pooled per node. */
+    UnifiedJedis open(ConnectionPoolConfig poolConfig) {
+        return switch (mode) {
+            case STANDALONE -> new JedisPooled(poolConfig, standalone, clientConfig);
+            case SENTINEL -> new JedisSentineled(sentinelMaster, clientConfig, poolConfig, sentinels, sentinelClientConfig);
+            case CLUSTER -> new JedisCluster(clusterNodes, clientConfig, clusterMaxAttempts, poolConfig);
+        };
+    }
+
+    /**
+     * A fresh, unpooled connection to the current master for long-lived blocking work
+     * (SUBSCRIBE, tracking). Not available in cluster mode, which has no single master.
+     */
+    Jedis dedicated(UnifiedJedis client) {
+        return switch (mode) {
+            case STANDALONE -> new Jedis(standalone, clientConfig);
+            case SENTINEL -> new Jedis(((JedisSentineled) client).getCurrentMaster(), clientConfig);
+            case CLUSTER -> throw new IllegalStateException("no single master in cluster mode");
+        };
+    }
+
+    /**
+     * A fresh, unpooled connection that can serve blocking commands on {@code key}: the
+     * slot owner in cluster mode. Held for as long as the caller likes, so it never takes
+     * a connection out of the shared pools.
+     */
+    Jedis forKey(UnifiedJedis client, String key) {
+        if (mode != Mode.CLUSTER) return dedicated(client);
+        return new Jedis(slotOwner((JedisCluster) client, JedisClusterCRC16.getSlot(key)), clientConfig);
+    }
+
+    // Ask the cluster which master serves the slot, over a pooled connection returned right after
+    @SuppressWarnings("unchecked")
+    private static HostAndPort slotOwner(JedisCluster cluster, int slot) {
+        List<Object> ranges;
+        try (Jedis j = new Jedis(cluster.getConnectionFromSlot(slot))) {
+            ranges = j.clusterSlots();
+        }
+        for (Object o : ranges) {
+            // [start, end, [host, port, id], replicas...]
+            List<Object> range = (List<Object>) o;
+            if ((Long) range.get(0) <= slot && slot <= (Long) range.get(1)) {
+                List<Object> master = (List<Object>) range.get(2);
+                Object host = master.get(0);
+                String h = host instanceof byte[] b ? new String(b, StandardCharsets.UTF_8) : String.valueOf(host);
+                return new HostAndPort(h, ((Long) master.get(1)).intValue());
+            }
+        }
+        throw new IllegalStateException("no cluster node serves slot " + slot);
+    }
+
+    /** Every connection pool behind {@code client} (one per node in cluster mode, none for sentinel). */
+    List<Pool<Connection>> pools(UnifiedJedis client) {
+        if (client instanceof JedisPooled p) return List.of(p.getPool());
+        if (client instanceof JedisCluster c) {
+            List<Pool<Connection>> out = new ArrayList<>();
+            for (ConnectionPool p : c.getClusterNodes().values()) out.add(p);
+            return out;
+        }
+        return List.of();
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.redis;
+
+import org.bukkit.plugin.java.JavaPlugin;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.UnifiedJedis;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Update transport over a capped Redis Stream. Every server XADDs its frames to one
+ * stream (trimmed with {@code MAXLEN ~}) and reads it with XREAD BLOCK from the last
+ * entry it saw, so nothing published during a reconnect, reload or restart is lost.
+ *
+ * The last-read ID is saved to {@code stream-offset.txt} in the data folder. If, on
+ * (re)connecting, the oldest entry is already newer than that ID, entries may have been
+ * trimmed away, so {@code onGap} runs and the caller resyncs from stored state instead.
+ */
+final class StreamTransport {
+
+    private static final String FIELD = "f";
+    private static final long RECONNECT_DELAY_MS = 2000L;
+    private static final long SAVE_INTERVAL_MS = 1000L;
+
+    private final JavaPlugin plugin;
+    private final String key;
+    private final long maxLen;
+    private final int readCount;
+    private final long blockMs;
+    private final Supplier<Jedis> connect;
+    private final Supplier<? extends UnifiedJedis> pool;
+    private final Consumer<List<byte[]>> onFrames;
+    private final Runnable onGap;
+    private final File offsetFile;
+
+    private volatile boolean running;
+    private volatile Jedis reader;
+    private volatile String lastId;
+    private String savedId;
+    private long lastSave;
+    private Thread thread;
+
+    StreamTransport(JavaPlugin plugin, String key, long maxLen, int readCount, long blockMs,
+                    Supplier<Jedis> connect, Supplier<? extends UnifiedJedis> pool,
+                    Consumer<List<byte[]>> onFrames, Runnable onGap) {
+        this.plugin = plugin;
+        this.key = key;
+        this.maxLen = maxLen;
+        this.readCount = readCount;
+        this.blockMs = blockMs;
+        this.connect = connect;
+        this.pool = pool;
+        this.onFrames = onFrames;
+        this.onGap = onGap;
+        this.offsetFile = new File(plugin.getDataFolder(), "stream-offset.txt");
+    }
+
+    /** XADD one frame (called from the publish thread). */
+    void publish(byte[] frame) {
+        byte[] k = bytes(key);
+        pool.get().sendCommand(k, Protocol.Command.XADD,
+                k, bytes("MAXLEN"), bytes("~"), bytes(Long.toString(maxLen)), bytes("*"), bytes(FIELD), frame);
+    }
+
+    void start() {
+        if (running) return;
+        running = true;
+
+        lastId = loadOffset();
+        savedId = lastId;
+
+        thread = new Thread(this::readLoop, "NetworkNick-Stream");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void stop() {
+        running = false;
+
+        Jedis r = reader;
+        if (r != null) {
+            try { r.close(); } catch (Throwable ignored) {}
+        }
+        saveOffset();
+    }
+
+    private void readLoop() {
+        while (running) {
+            try (Jedis j = connect.get()) {
+                reader = j;
+
+                if (lastId == null) {
+                    // First run: start after whatever is in the stream now
+                    lastId = newestId(j);
+                } else {
+                    // Entries may have been trimmed while we were away; if so, fall back to a full resync
+                    String oldest = oldestId(j);
+                    if (oldest != null && compareIds(oldest, lastId) > 0) {
+                        plugin.getLogger().warning("Update stream may have been trimmed past our last position (" + lastId
+                                + "); resyncing online players from Redis.");
+                        onGap.run();
+                    }
+                }
+
+                plugin.getLogger().info("Reading update stream " + key + " from " + lastId);
+
+                while (running) {
+                    Object reply = j.sendBlockingCommand(Protocol.Command.XREAD,
+                            "COUNT", Integer.toString(readCount), "BLOCK", Long.toString(blockMs),
+                            "STREAMS", key, lastId);
+                    if (reply != null) onEntries(reply);
+                    maybeSaveOffset();
+                }
+            } catch (Throwable t) {
+                if (running) plugin.getLogger().warning("Redis stream read error: " + t.getMessage());
+            } finally {
+                reader = null;
+            }
+
+            if (running) {
+                try { Thread.sleep(RECONNECT_DELAY_MS); } catch (InterruptedException ignored) {}
+            }
+        }
+    }
+
+    /** XREAD reply: [[key, [[id, [field, value, ...]], ...]]]. Hands over the whole batch at once. */
+    private void onEntries(Object reply) {
+        if (!(reply instanceof List<?> streams)) return;
+
+        List<byte[]> frames = new ArrayList<>();
+
+        for (Object s : streams) {
+            if (!(s instanceof List<?> stream) || stream.size() < 2 || !(stream.get(1) instanceof List<?> entries)) continue;
+
+            for (Object e : entries) {
+                if (!(e instanceof List<?> entry) || entry.size() < 2) continue;
+
+                if (entry.get(1) instanceof List<?> fields) {
+                    for (int i = 0; i + 1 < fields.size(); i += 2) {
+                        if (fields.get(i) instanceof byte[] f && FIELD.equals(str(f)) && fields.get(i + 1) instanceof byte[] v) {
+                            frames.add(v);
+                        }
+                    }
+                }
+                if (entry.get(0) instanceof byte[] id) lastId = str(id);
+            }
+        }
+
+        if (!frames.isEmpty()) onFrames.accept(frames);
+    }
+
+    private String newestId(Jedis j) {
+        String id = firstId(j.sendCommand(Protocol.Command.XREVRANGE, bytes(key), bytes("+"), bytes("-"), bytes("COUNT"), bytes("1")));
+        return id == null ? "0-0" : id;
+    }
+
+    private String oldestId(Jedis j) {
+        return firstId(j.sendCommand(Protocol.Command.XRANGE, bytes(key), bytes("-"), bytes("+"), bytes("COUNT"), bytes("1")));
+    }
+
+    private static String firstId(Object reply) {
+        if (reply instanceof List<?> list && !list.isEmpty()
+                && list.get(0) instanceof List<?> entry && !entry.isEmpty()
+                && entry.get(0) instanceof byte[] id) {
+            return str(id);
+        }
+        return null;
+    }
+
+    /** Compare "ms-seq" stream IDs numerically. */
+    static int compareIds(String a, String b) {
+        long[] x = parseId(a);
+        long[] y = parseId(b);
+        int c = Long.compare(x[0], y[0]);
+        return c != 0 ? c : Long.compare(x[1], y[1]);
+    }
+
+    private static long[] parseId(String id) {
+        int dash = id.indexOf('-');
+        try {
+            if (dash < 0) return new long[] {Long.parseLong(id), 0L};
+            return new long[] {Long.parseLong(id.substring(0, dash)), Long.parseLong(id.substring(dash + 1))};
+        } catch (NumberFormatException e) {
+            return new long[] {0L, 0L};
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Offset file: "<stream key> <last id>"
+    // ---------------------------------------------------------------------
+
+    private String loadOffset() {
+        if (!offsetFile.isFile()) return null;
+        try {
+            String[] parts = Files.readString(offsetFile.toPath(), StandardCharsets.UTF_8).trim().split(" ");
+            // A different stream key means a different stream: start fresh
+            if (parts.length == 2 && parts[0].equals(key)) return parts[1];
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not read " + offsetFile.getName() + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    private void maybeSaveOffset() {
+        long now = System.currentTimeMillis();
+        if (now - lastSave < SAVE_INTERVAL_MS) return;
+        lastSave = now;
+        saveOffset();
+    }
+
+    private synchronized void saveOffset() {
+        String id = lastId;
+        if (id == null || id.equals(savedId)) return;
+
+        try {
+            File dir = offsetFile.getParentFile();
+            if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+
+            File tmp = new File(dir, offsetFile.getName() + ".tmp");
+            Files.writeString(tmp.toPath(), key + " " + id, StandardCharsets.UTF_8);
+            Files.move(tmp.toPath(), offsetFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            savedId = id;
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not save " + offsetFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String str(byte[] b) {
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.redis;
+
+import net.chumbucket.networknick.service.NickState;
+import net.chumbucket.networknick.store.UpdateCodec;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outbound update queue. Updates are coalesced per player (highest version wins) for
+ * {@code sync.batch-window-ms}, then flushed as multi-entry {@link UpdateCodec} frames,
+ * so a mass /nick or a burst of /hide toggles costs each server one message instead of
+ * hundreds.
+ */
+final class UpdatePublisher {
+
+    // Entries per frame; bigger flushes are split so one message stays small
+    private static final int MAX_FRAME_ENTRIES = 512;
+
+    /**
+     * Picks the update channel for each queued player (the broadcast channel, a shard
+     * channel, or one server's own channel). Called once per flush with every player in it.
+     */
+    interface Router {
+        Map<UUID, String> route(Collection<UUID> uuids);
+    }
+
+    /**
+     * Where encoded frames go. {@code channel} is the one every entry in the frame was routed
+     * to; {@code legacy} holds the 1.0.x text payloads (empty unless enabled).
+     */
+    interface Sink {
+        void send(String channel, byte[] frame, List<String> legacy);
+    }
+
+    private final JavaPlugin plugin;
+    private final String serverId;
+    private final long windowMs;
+    private final boolean legacyWire;
+    private final Sink sink;
+    private final Router router;
+
+    private final Map<UUID, NickState> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private final ScheduledExecutorService timer;
+
+    private final AtomicLong offered = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong frames = new AtomicLong();
+
+    UpdatePublisher(JavaPlugin plugin, String serverId, long windowMs, boolean legacyWire,
+                    Router router, Sink sink) {
+        this.plugin = plugin;
+        this.serverId = serverId;
+        this.windowMs = windowMs;
+        this.legacyWire = legacyWire;
+        this.sink = sink;
+        this.router = router;
+
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "NetworkNick-Publish");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Queue a player's new state; replaces any older queued state for them. */
+    void offer(UUID uuid, NickState state) {
+        offered.incrementAndGet();
+        pending.merge(uuid, state, (old, neu) -> neu.version() >= old.version() ? neu : old);
+
+        // No window: send right away on the caller's thread
+        if (windowMs <= 0) {
+            flush();
+            return;
+        }
+
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                timer.schedule(this::flush, windowMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException stopped) {
+                scheduled.set(false);
+            }
+        }
+    }
+
+    /** Publish everything queued right now. Runs on the publish thread (or the caller during close). */
+    void flush() {
+        scheduled.set(false);
+        if (pending.isEmpty()) return;
+
+        Map<UUID, NickState> drained = new HashMap<>();
+        Iterator<UUID> it = pending.keySet().iterator();
+        while (it.hasNext()) {
+            UUID uuid = it.next();
+            NickState state = pending.remove(uuid);
+            if (state != null) drained.put(uuid, state);
+        }
+        if (drained.isEmpty()) return;
+
+        Map<UUID, String> routes = router.route(drained.keySet());
+        Map<String, List<UpdateCodec.NickUpdate>> byChannel = new HashMap<>();
+        for (Map.Entry<UUID, NickState> e : drained.entrySet()) {
+            byChannel.computeIfAbsent(routes.get(e.getKey()), k -> new ArrayList<>())
+                    .add(new UpdateCodec.NickUpdate(e.getKey(), e.getValue()));
+        }
+
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, List<UpdateCodec.NickUpdate>> e : byChannel.entrySet()) {
+            send(e.getKey(), e.getValue(), now);
+        }
+    }
+
+    private void send(String channel, List<UpdateCodec.NickUpdate> batch, long now) {
+        for (int from = 0; from < batch.size(); from += MAX_FRAME_ENTRIES) {
+            List<UpdateCodec.NickUpdate> part = batch.subList(from, Math.min(batch.size(), from + MAX_FRAME_ENTRIES));
+
+            List<String> legacy = List.of();
+            if (legacyWire) {
+                legacy = new ArrayList<>(part.size());
+                for (UpdateCodec.NickUpdate u : part) legacy.add(UpdateCodec.encodeLegacy(u));
+            }
+
+            try {
+                sink.send(channel, UpdateCodec.encode(serverId, now, part), legacy);
+                sent.addAndGet(part.size());
+                frames.incrementAndGet();
+            } catch (Throwable t) {
+                // The state is already stored; other servers catch up on their next read
+                plugin.getLogger().warning("Redis publish failed for " + part.size() + " update(s): " + t.getMessage());
+            }
+        }
+    }
+
+    /** Stop the timer and publish whatever is still queued, on the calling thread. */
+    void close() {
+        timer.shutdownNow();
+        flush();
+    }
+
+    /** Updates offered, entries published and frames published since start. */
+    record Stats(long offered, long sent, long frames) {}
+
+    Stats stats() {
+        return new Stats(offered.get(), sent.get(), frames.get());
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.redis;
+
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only journal of nick writes that couldn't reach Redis, replayed in order once
+ * it is back.
+ *
+ * One record per line, so a torn last line after a crash is simply skipped:
+ * <pre>
+ *   S &lt;uuid&gt; &lt;base64 nick&gt;   set nick (empty = remove)
+ *   C &lt;uuid&gt;                  clear nick and prior
+ * </pre>
+ * Appends are fsync'd in batches every {@code journal.fsync-ms}; {@link #append} completes
+ * once its record is on disk. Replay rotates the live file to {@code .replaying} so new
+ * appends never mix with a batch being replayed.
+ */
+final class WriteJournal {
+
+    enum Op { SET, CLEAR }
+
+    record Entry(Op op, UUID uuid, String nick) {}
+
+    private final JavaPlugin plugin;
+    private final File live;
+    private final File replaying;
+    private final long fsyncMs;
+
+    private FileChannel channel;
+    private ScheduledExecutorService syncer;
+
+    // Appends written but not yet fsync'd, completed by the next sync
+    private List<CompletableFuture<Void>> unsynced = new ArrayList<>();
+
+    // Players with a record still waiting in either file
+    private final Set<UUID> livePending = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> replayPending = ConcurrentHashMap.newKeySet();
+
+    WriteJournal(JavaPlugin plugin, long fsyncMs) {
+        this.plugin = plugin;
+        this.live = new File(plugin.getDataFolder(), "journal.log");
+        this.replaying = new File(plugin.getDataFolder(), "journal.log.replaying");
+        this.fsyncMs = fsyncMs;
+    }
+
+    synchronized void open() throws IOException {
+        if (channel != null) return;
+
+        File dir = plugin.getDataFolder();
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+
+        for (Entry e : read(replaying)) replayPending.add(e.uuid());
+        for (Entry e : read(live)) livePending.add(e.uuid());
+
+        // Cut off a torn last record so the next append starts on its own line
+        if (live.isFile()) {
+            byte[] bytes = Files.readAllBytes(live.toPath());
+            int end = bytes.length;
+            while (end > 0 && bytes[end - 1] != '\n') end--;
+            if (end < bytes.length) {
+                try (FileChannel fix = FileChannel.open(live.toPath(), StandardOpenOption.WRITE)) {
+                    fix.truncate(end);
+                }
+            }
+        }
+
+        channel = FileChannel.open(live.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "NetworkNick-Journal");
+            t.setDaemon(true);
+            return t;
+        });
+        syncer.scheduleWithFixedDelay(this::sync, fsyncMs, fsyncMs, TimeUnit.MILLISECONDS);
+
+        int pending = livePending.size() + replayPending.size();
+        if (pending > 0) plugin.getLogger().info("Write journal has unsent changes for " + pending + " player(s); replaying when Redis is reachable.");
+    }
+
+    /** Append a record; the future completes once it has been fsync'd. */
+    synchronized CompletableFuture<Void> append(Entry e) throws IOException {
+        if (channel == null) throw new IOException("journal is closed");
+
+        String line = switch (e.op()) {
+            case SET -> "S " + e.uuid() + " " + Base64.getEncoder().encodeToString(
+                    (e.nick() == null ? "" : e.nick()).getBytes(StandardCharsets.UTF_8));
+            case CLEAR -> "C " + e.uuid();
+        };
+
+        ByteBuffer buf = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buf.hasRemaining()) channel.write(buf);
+        livePending.add(e.uuid());
+
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        unsynced.add(done);
+        return done;
+    }
+
+    /** One fsync for every append since the last one. */
+    private void sync() {
+        List<CompletableFuture<Void>> batch;
+        synchronized (this) {
+            if (unsynced.isEmpty() || channel == null) return;
+            batch = unsynced;
+            unsynced = new ArrayList<>();
+
+            try {
+                channel.force(false);
+            } catch (IOException ex) {
+                for (CompletableFuture<Void> f : batch) f.completeExceptionally(ex);
+                return;
+            }
+        }
+        for (CompletableFuture<Void> f : batch) f.complete(null);
+    }
+
+    boolean hasPending() {
+        return !livePending.isEmpty() || !replayPending.isEmpty();
+    }
+
+    boolean isPending(UUID uuid) {
+        return livePending.contains(uuid) || replayPending.contains(uuid);
+    }
+
+    int pendingPlayers() {
+        return livePending.size() + replayPending.size();
+    }
+
+    /**
+     * Records to replay, oldest first. Rotates the live file aside unless an earlier replay
+     * is still unfinished, in which case that batch is returned again.
+     */
+    synchronized List<Entry> beginReplay() throws IOException {
+        if (!replaying.exists()) {
+            if (livePending.isEmpty()) return List.of();
+
+            sync();
+            channel.close();
+            Files.move(live.toPath(), replaying.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(live.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+            replayPending.addAll(livePending);
+            livePending.clear();
+        }
+        return read(replaying);
+    }
+
+    /** Forget a replayed batch once Redis has all of it. */
+    synchronized void finishReplay() throws IOException {
+        Files.deleteIfExists(replaying.toPath());
+        replayPending.clear();
+    }
+
+    synchronized void close() {
+        if (channel == null) return;
+        if (syncer != null) syncer.shutdownNow();
+        sync();
+        try { channel.close(); } catch (IOException ignored) {}
+        channel = null;
+    }
+
+    private List<Entry> read(File f) throws IOException {
+        List<Entry> out = new ArrayList<>();
+        if (!f.isFile()) return out;
+
+        String text = Files.readString(f.toPath(), StandardCharsets.UTF_8);
+        // Anything after the last newline is a record cut off mid-write
+        int end = text.lastIndexOf('\n');
+        if (end < 0) return out;
+
+        for (String line : text.substring(0, end).split("\n")) {
+            Entry e = parse(line);
+            if (e != null) out.add(e);
+        }
+        return out;
+    }
+
+    private static Entry parse(String line) {
+        String[] parts = line.split(" ", 3);
+        try {
+            if (parts.length == 3 && parts[0].equals("S")) {
+                String nick = new String(Base64.getDecoder().decode(parts[2]), StandardCharsets.UTF_8);
+                return new Entry(Op.SET, UUID.fromString(parts[1]), nick);
+            }
+            if (parts.length == 2 && parts[0].equals("C")) {
+                return new Entry(Op.CLEAR, UUID.fromString(parts[1]), null);
+            }
+        } catch (IllegalArgumentException ignored) {
+            // torn or corrupt line
+        }
+        return null;
+    }
+}
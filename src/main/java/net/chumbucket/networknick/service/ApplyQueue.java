@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.service;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * States waiting to be applied on the main thread, drained once per tick instead of one
+ * scheduler task per update. A player queued again before the drain reaches them keeps
+ * one entry (the newer state), and a drain stops once its time budget is spent, leaving
+ * the rest for the next tick, so a flood of updates spreads over a few ticks.
+ */
+final class ApplyQueue {
+
+    record Stats(int depth, long maxDepth, long applied, long coalesced, long carriedOver) {}
+
+    private final Map<UUID, NickState> pending = new ConcurrentHashMap<>();
+    // FIFO of players with a pending entry; a player is in here at most once
+    private final Queue<UUID> order = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong maxDepth = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong carriedOver = new AtomicLong();
+
+    /** Queue a state from any thread. */
+    void offer(UUID uuid, NickState state) {
+        boolean[] fresh = new boolean[1];
+        pending.compute(uuid, (k, queued) -> {
+            if (queued == null) {
+                fresh[0] = true;
+                return state;
+            }
+            coalesced.incrementAndGet();
+            return newer(queued, state);
+        });
+        if (fresh[0]) {
+            order.add(uuid);
+            maxDepth.accumulateAndGet(pending.size(), Math::max);
+        }
+    }
+
+    /**
+     * Apply queued states in order until {@code budgetNanos} is spent (at least one per call).
+     * Main thread (Folia: global region) only.
+     */
+    void drain(long budgetNanos, BiConsumer<UUID, NickState> apply) {
+        long start = System.nanoTime();
+        UUID uuid;
+        while ((uuid = order.poll()) != null) {
+            NickState state = pending.remove(uuid);
+            if (state != null) {
+                apply.accept(uuid, state);
+                applied.incrementAndGet();
+            }
+            if (System.nanoTime() - start >= budgetNanos) {
+                if (!order.isEmpty()) carriedOver.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    void clear() {
+        pending.clear();
+        order.clear();
+    }
+
+    Stats stats() {
+        return new Stats(pending.size(), maxDepth.get(), applied.get(), coalesced.get(), carriedOver.get());
+    }
+
+    // Higher version wins; unversioned (journaled) states are newer by arrival
+    private static NickState newer(NickState queued, NickState next) {
+        if (queued.version() > 0 && next.version() > 0 && next.version() < queued.version()) return queued;
+        return next;
+    }
+}
@@ -36,11 +36,13 @@ public final class ExemptService {
     private static final String EXEMPT_NODE = "networknick.exempt";
 
     private final JavaPlugin plugin;
+    private final NickScheduler scheduler;
     private final boolean luckPermsPresent;
     private final LuckPerms lp;
 
-    public ExemptService(JavaPlugin plugin) {
+    public ExemptService(JavaPlugin plugin, NickScheduler scheduler) {
         this.plugin = plugin;
+        this.scheduler = scheduler;
 
         LuckPerms found = null;
         boolean present = false;
@@ -65,7 +67,7 @@ public final class ExemptService {
     }
 
     /**
-     * Async exempt check. The callback is always executed on the main thread.
+     * Async exempt check. The callback is always executed on the main thread (Folia: global region).
      */
     public void isExempt(UUID uuid, Consumer<Boolean> callback) {
         if (uuid == null) {
@@ -114,7 +116,6 @@ public final class ExemptService {
     }
 
     private void runSync(Runnable r) {
-        if (Bukkit.isPrimaryThread()) r.run();
-        else Bukkit.getScheduler().runTask(plugin, r);
+        scheduler.runGlobal(r);
     }
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.service;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.function.Consumer;
+
+/**
+ * Folia's global-region and entity schedulers. We build against the Spigot API, which
+ * doesn't have them, so they are bound once through method handles.
+ */
+final class FoliaNickScheduler implements NickScheduler {
+
+    private static final String SCHEDULER_PACKAGE = "io.papermc.paper.threadedregions.scheduler.";
+
+    private final JavaPlugin plugin;
+    private final Object global;
+    private final MethodHandle globalExecute;
+    private final MethodHandle globalAtFixedRate;
+    private final MethodHandle entityScheduler;
+    private final MethodHandle entityRun;
+    private final MethodHandle isGlobalTickThread;
+    private final MethodHandle isOwnedByCurrentRegion;
+
+    private FoliaNickScheduler(JavaPlugin plugin, Object global, MethodHandle globalExecute, MethodHandle globalAtFixedRate,
+                               MethodHandle entityScheduler, MethodHandle entityRun,
+                               MethodHandle isGlobalTickThread, MethodHandle isOwnedByCurrentRegion) {
+        this.plugin = plugin;
+        this.global = global;
+        this.globalExecute = globalExecute;
+        this.globalAtFixedRate = globalAtFixedRate;
+        this.entityScheduler = entityScheduler;
+        this.entityRun = entityRun;
+        this.isGlobalTickThread = isGlobalTickThread;
+        this.isOwnedByCurrentRegion = isOwnedByCurrentRegion;
+    }
+
+    /** Null unless running on Folia (Paper has the same schedulers, but one main thread). */
+    static FoliaNickScheduler create(JavaPlugin plugin) {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+
+        try {
+            Class<?> globalType = Class.forName(SCHEDULER_PACKAGE + "GlobalRegionScheduler");
+            Class<?> entityType = Class.forName(SCHEDULER_PACKAGE + "EntityScheduler");
+            Class<?> taskType = Class.forName(SCHEDULER_PACKAGE + "ScheduledTask");
+
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Object global = lookup.findStatic(Bukkit.class, "getGlobalRegionScheduler", MethodType.methodType(globalType)).invoke();
+
+            return new FoliaNickScheduler(plugin, global,
+                    lookup.findVirtual(globalType, "execute", MethodType.methodType(void.class, Plugin.class, Runnable.class)),
+                    lookup.findVirtual(globalType, "runAtFixedRate",
+                            MethodType.methodType(taskType, Plugin.class, Consumer.class, long.class, long.class)),
+                    lookup.findVirtual(Entity.class, "getScheduler", MethodType.methodType(entityType)),
+                    lookup.findVirtual(entityType, "run",
+                            MethodType.methodType(taskType, Plugin.class, Consumer.class, Runnable.class)),
+                    lookup.findStatic(Bukkit.class, "isGlobalTickThread", MethodType.methodType(boolean.class)),
+                    lookup.findStatic(Bukkit.class, "isOwnedByCurrentRegion", MethodType.methodType(boolean.class, Entity.class)));
+        } catch (Throwable t) {
+            plugin.getLogger().warning("Folia detected but its schedulers could not be bound (" + t + "); using the Bukkit scheduler.");
+            return null;
+        }
+    }
+
+    @Override
+    public String name() {
+        return "folia";
+    }
+
+    @Override
+    public void runGlobal(Runnable task) {
+        try {
+            if ((boolean) isGlobalTickThread.invoke()) {
+                task.run();
+                return;
+            }
+            globalExecute.invoke(global, (Plugin) plugin, task);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    @Override
+    public void runFor(Player player, Runnable task) {
+        try {
+            if ((boolean) isOwnedByCurrentRegion.invoke((Entity) player)) {
+                task.run();
+                return;
+            }
+            // Null retired callback: the player left, nothing to apply
+            Object scheduler = entityScheduler.invoke((Entity) player);
+            Consumer<Object> run = scheduled -> task.run();
+            entityRun.invoke(scheduler, (Plugin) plugin, run, (Runnable) null);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    @Override
+    public void repeatGlobal(Runnable task, long delayTicks, long periodTicks) {
+        Consumer<Object> run = scheduled -> task.run();
+        try {
+            // Folia rejects an initial delay below 1
+            globalAtFixedRate.invoke(global, (Plugin) plugin, run, Math.max(1L, delayTicks), periodTicks);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+}
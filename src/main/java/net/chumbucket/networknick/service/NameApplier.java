@@ -0,0 +1,38 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.service;
+
+import org.bukkit.entity.Player;
+
+import java.util.logging.Logger;
+
+/**
+ * Sets a player's display and tab-list names for the server platform. Picked once at
+ * startup by {@link #detect}, so applying a name never looks anything up reflectively.
+ */
+public interface NameApplier {
+
+    /** Platform name for logs and status ("spigot" or "paper"). */
+    String name();
+
+    void displayName(Player p, RenderedName name);
+
+    void playerListName(Player p, RenderedName name);
+
+    /** Paper (Adventure Component names) when available, otherwise plain Spigot legacy strings. */
+    static NameApplier detect(Logger log) {
+        NameApplier paper = PaperNameApplier.create();
+        if (paper != null) return paper;
+
+        log.info("Paper name API not found; applying names as legacy strings.");
+        return new SpigotNameApplier();
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.service;
+
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+
+/**
+ * Where main-thread work runs. On Bukkit/Paper that is the one server thread; on Folia
+ * there is no such thread, so global work runs on the global region and per-player work
+ * on the region that owns the player. Picked once at startup by {@link #detect}.
+ */
+public interface NickScheduler {
+
+    /** Platform name for logs ("bukkit" or "folia"). */
+    String name();
+
+    /** Run on the main thread (Folia: global region): right away if already there, else next tick. */
+    void runGlobal(Runnable task);
+
+    /**
+     * Run on the thread that owns the player: right away if already there, else next tick.
+     * Dropped if the player leaves first.
+     */
+    void runFor(Player player, Runnable task);
+
+    /** Run every {@code periodTicks} on the main thread (Folia: global region) until the plugin disables. */
+    void repeatGlobal(Runnable task, long delayTicks, long periodTicks);
+
+    /** Folia's region schedulers when running on Folia, otherwise the Bukkit scheduler. */
+    static NickScheduler detect(JavaPlugin plugin) {
+        NickScheduler folia = FoliaNickScheduler.create(plugin);
+        if (folia != null) {
+            plugin.getLogger().info("Folia detected; applying names on each player's region thread.");
+            return folia;
+        }
+        return new BukkitNickScheduler(plugin);
+    }
+}
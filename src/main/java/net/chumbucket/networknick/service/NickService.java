@@ -10,157 +10,303 @@
 
 package net.chumbucket.networknick.service;
 
-import net.chumbucket.networknick.util.Msg;
+import net.chumbucket.networknick.NetworkNickConfig;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
-import org.bukkit.plugin.java.JavaPlugin;
 
-import java.lang.reflect.Method;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
 
 public final class NickService implements Listener {
 
-    private final JavaPlugin plugin;
+    // Distinct names rendered at most once (nicks and real names alike)
+    private static final int MAX_RENDERED_NAMES = 4096;
+    private final RenderedNames names = new RenderedNames(MAX_RENDERED_NAMES);
 
-    // What the player should DISPLAY right now (nick or real, including & codes)
-    private final Map<UUID, String> liveVisibleName = new ConcurrentHashMap<>();
+    // What the player should DISPLAY right now (nick or real)
+    private final Map<UUID, RenderedName> liveVisibleName = new ConcurrentHashMap<>();
 
-    // What is STORED as their nick in Redis (null if none). Used to detect hidden (&k...)
-    private final Map<UUID, String> storedNick = new ConcurrentHashMap<>();
+    // What is STORED for them in Redis (absent if nothing applied yet)
+    private final Map<UUID, NickState> storedState = new ConcurrentHashMap<>();
 
-    public NickService(JavaPlugin plugin) {
-        this.plugin = plugin;
+    // Prior (pre-/hide) nick when the applied state didn't carry one (legacy text payloads),
+    // loaded lazily off-thread for placeholders. "" = known to have none.
+    private final Map<UUID, String> priorNick = new ConcurrentHashMap<>();
+    private final Set<UUID> priorLoading = ConcurrentHashMap.newKeySet();
+
+    // Updates ignored because a newer (or the same) version was already applied
+    private final AtomicLong staleDropped = new AtomicLong();
+    private final AtomicLong redundantSkipped = new AtomicLong();
+
+    // What we last set on each player, per field, so unchanged fields aren't set again
+    // (every setPlayerListName is a tablist packet to everyone). Only touched from the player's own thread.
+    private final Map<UUID, AppliedNames> applied = new ConcurrentHashMap<>();
+    private final AtomicLong namesSet = new AtomicLong();
+    private final AtomicLong namesUnchanged = new AtomicLong();
+
+    // Updates from other threads, applied once per tick within apply.tick-budget-us
+    private final ApplyQueue queue = new ApplyQueue();
+
+    // Spigot or Paper name setters, picked once
+    private final NameApplier applier;
+
+    // Bukkit main thread, or Folia's global/region threads
+    private final NickScheduler scheduler;
+
+    private final Supplier<NetworkNickConfig> settings;
+
+    public NickService(Logger log, Supplier<NetworkNickConfig> settings, NickScheduler scheduler) {
+        this.settings = settings;
+        this.scheduler = scheduler;
+        this.applier = NameApplier.detect(log);
+    }
+
+    /**
+     * Apply a nick state to a player, unless it is older than (or the same version as) what
+     * they already have. Version 0 means unversioned (legacy payloads, no stored hash) and is
+     * only skipped when it would change nothing.
+     * @param p player
+     * @param stateOrNull the state stored in Redis (or null to clear)
+     * @return true if the state was applied
+     */
+    public boolean applyToPlayer(Player p, NickState stateOrNull) {
+        if (p == null) return false;
+
+        final NickState state = (stateOrNull == null) ? NickState.EMPTY : stateOrNull;
+        NickState current = storedState.get(p.getUniqueId());
+        if (current != null && current.version() > 0) {
+            if (state.version() > 0 && state.version() < current.version()) {
+                staleDropped.incrementAndGet();
+                return false;
+            }
+            if (state.version() == current.version()
+                    || (state.version() == 0 && Objects.equals(state.nick(), current.nick()))) {
+                redundantSkipped.incrementAndGet();
+                return false;
+            }
+        }
+
+        applyNames(p, state, false);
+        return true;
     }
 
-    private static boolean isHideNick(String nick) {
-        if (nick == null) return false;
-        String s = nick.trim();
-        return s.startsWith("&k") || s.startsWith("§k");
+    /** Apply a state on the main thread within the next tick or few (any thread; coalesced per player). */
+    public void queueApply(UUID uuid, NickState state) {
+        queue.offer(uuid, state == null ? NickState.EMPTY : state);
     }
 
-    private boolean applyDisplayNameEnabled() {
-        return plugin.getConfig().getBoolean("apply.display-name", true);
+    /** {@link #queueApply(UUID, NickState)} for each entry. */
+    public void queueApply(Map<UUID, NickState> states) {
+        for (Map.Entry<UUID, NickState> e : states.entrySet()) queueApply(e.getKey(), e.getValue());
     }
 
-    private boolean applyPlayerListNameEnabled() {
-        return plugin.getConfig().getBoolean("apply.playerlist-name", true);
+    /**
+     * Start draining queued applies, once per tick. Call from onEnable. On Folia the drain
+     * hands each player's apply to their region, so the budget bounds the hand-off.
+     */
+    public void start() {
+        scheduler.repeatGlobal(() -> queue.drain(
+                TimeUnit.MICROSECONDS.toNanos(settings.get().applyBudgetMicros()),
+                (uuid, state) -> {
+                    Player p = Bukkit.getPlayer(uuid);
+                    if (p != null && p.isOnline()) scheduler.runFor(p, () -> applyToPlayer(p, state));
+                }), 1L, 1L);
     }
 
-    private boolean applyCustomNameEnabled() {
-        // Optional toggle: defaults true to preserve old behavior
-        return plugin.getConfig().getBoolean("apply.custom-name", true);
+    /** Drop anything still queued. Call from onDisable, after the backend has stopped feeding the queue. */
+    public void stop() {
+        queue.clear();
     }
 
     /**
-     * Apply the current nick to a player.
-     * @param p player
-     * @param nameOrNull the nick stored in Redis (or null to clear)
+     * Re-apply the player's current state as-is (e.g. to win against another plugin's late override).
+     * Sets every field even if we set the same name before, since someone else may have changed it since.
      */
-    public void applyToPlayer(Player p, String nameOrNull) {
+    public void reapply(Player p) {
         if (p == null) return;
+        NickState s = storedState.get(p.getUniqueId());
+        applyNames(p, s == null ? NickState.EMPTY : s, true);
+    }
+
+    /** Updates dropped as older than the applied version. */
+    public long staleDropped() {
+        return staleDropped.get();
+    }
 
-        if (nameOrNull == null || nameOrNull.isBlank()) storedNick.remove(p.getUniqueId());
-        else storedNick.put(p.getUniqueId(), nameOrNull);
+    /** Updates skipped because that version was already applied. */
+    public long redundantSkipped() {
+        return redundantSkipped.get();
+    }
 
-        final String visibleLegacy = (nameOrNull == null || nameOrNull.isBlank())
-                ? p.getName()
-                : nameOrNull;
+    /** Name fields actually set on players. */
+    public long namesSet() {
+        return namesSet.get();
+    }
 
-        liveVisibleName.put(p.getUniqueId(), visibleLegacy);
+    /** Name fields not set because they already held that name. */
+    public long namesUnchanged() {
+        return namesUnchanged.get();
+    }
 
-        final boolean doDisplay = applyDisplayNameEnabled();
-        final boolean doList = applyPlayerListNameEnabled();
-        final boolean doCustom = applyCustomNameEnabled();
+    /** Apply queue line (with & colors) for /networknick status. */
+    public String applyQueueStatus() {
+        ApplyQueue.Stats s = queue.stats();
+        return "&7Apply queue: &f" + s.depth() + "&7 pending (max &f" + s.maxDepth() + "&7), &f" + s.applied()
+                + "&7 applied, &f" + s.coalesced() + "&7 coalesced, &f" + s.carriedOver() + "&7 ticks over budget";
+    }
+
+    /** Rendered-name cache line (with & colors) for /networknick status. */
+    public String renderedNamesStatus() {
+        long hits = names.hits();
+        long lookups = hits + names.misses();
+        long rate = lookups == 0 ? 0 : hits * 100 / lookups;
+        return "&7Rendered names (" + applier.name() + "): &f" + names.size() + "&7 cached, &f" + rate
+                + "%&7 hits (&f" + hits + "&7/&f" + lookups + "&7)";
+    }
 
-        // 1) Display name (older plugins + many PAPI placeholders use this)
-        if (doDisplay) {
-            try { p.setDisplayName(Msg.color(visibleLegacy)); }
-            catch (Throwable t) { try { p.setDisplayName(visibleLegacy); } catch (Throwable ignored) {} }
+    private void applyNames(Player p, NickState state, boolean force) {
+        NickState previous = storedState.put(p.getUniqueId(), state);
+        if (previous == null
+                || !Objects.equals(previous.nick(), state.nick())
+                || previous.hidden() != state.hidden()) {
+            priorNick.remove(p.getUniqueId());
+        }
+
+        final RenderedName visible = names.get(state.hasNick() ? state.nick() : p.getName());
+
+        liveVisibleName.put(p.getUniqueId(), visible);
+
+        final NetworkNickConfig cfg = settings.get();
+        final boolean doDisplay = cfg.applyDisplayName();
+        final boolean doList = cfg.applyPlayerListName();
+        final boolean doCustom = cfg.applyCustomName();
+
+        final AppliedNames last = applied.computeIfAbsent(p.getUniqueId(), k -> new AppliedNames());
+
+        // 1) Display name (older plugins + many PAPI placeholders use this); on Paper also the Component name
+        if (doDisplay && changed(last.display, visible, force)) {
+            try { applier.displayName(p, visible); }
+            catch (Throwable t) { try { p.setDisplayName(visible.raw()); } catch (Throwable ignored) {} }
+            last.display = visible;
         }
 
         // 2) Player list name (tablist)  ✅ this is what causes TAB flicker if both plugins do it
-        if (doList) {
-            try { p.setPlayerListName(Msg.color(visibleLegacy)); }
-            catch (Throwable t) { try { p.setPlayerListName(visibleLegacy); } catch (Throwable ignored) {} }
+        if (doList && changed(last.list, visible, force)) {
+            try { applier.playerListName(p, visible); }
+            catch (Throwable t) { try { p.setPlayerListName(visible.raw()); } catch (Throwable ignored) {} }
+            last.list = visible;
         }
 
         // 3) Custom name + visibility (rarely needed for players; keep optional)
-        if (doCustom) {
+        if (doCustom && changed(last.custom, visible, force)) {
             try {
-                p.setCustomName(Msg.color(visibleLegacy));
+                p.setCustomName(visible.legacy());
                 p.setCustomNameVisible(false);
             } catch (Throwable ignored) {}
+            last.custom = visible;
         }
-
-        // 4) Paper API (if present): displayName(Component) & playerListName(Component)
-        // Only apply the pieces that are enabled
-        tryApplyPaperComponents(p, visibleLegacy, doDisplay, doList);
     }
 
-    private void tryApplyPaperComponents(Player p, String legacy, boolean doDisplay, boolean doList) {
-        try {
-            Class<?> componentClass = Class.forName("net.kyori.adventure.text.Component");
-
-            Method compMethod = Msg.class.getMethod("component", String.class);
-            Object component = compMethod.invoke(null, legacy);
-
-            // displayName(Component)
-            if (doDisplay) {
-                try {
-                    Method displayName = p.getClass().getMethod("displayName", componentClass);
-                    displayName.invoke(p, component);
-                } catch (NoSuchMethodException ignored) {}
-            }
-
-            // playerListName(Component)
-            if (doList) {
-                try {
-                    Method listName = p.getClass().getMethod("playerListName", componentClass);
-                    listName.invoke(p, component);
-                } catch (NoSuchMethodException ignored) {}
-            }
-
-        } catch (Throwable ignored) {
-            // Not Paper or Adventure not present—fine.
+    /** True (and counted as set) if the field needs setting; false (counted as unchanged) if it already holds {@code next}. */
+    private boolean changed(RenderedName current, RenderedName next, boolean force) {
+        if (!force && current != null && current.raw().equals(next.raw())) {
+            namesUnchanged.incrementAndGet();
+            return false;
         }
+        namesSet.incrementAndGet();
+        return true;
+    }
+
+    /** Last name set per field; null = never set by us. */
+    private static final class AppliedNames {
+        RenderedName display;
+        RenderedName list;
+        RenderedName custom;
     }
 
     public void clearFromCache(UUID uuid) {
         liveVisibleName.remove(uuid);
-        storedNick.remove(uuid);
+        applied.remove(uuid);
+        storedState.remove(uuid);
+        priorNick.remove(uuid);
+        priorLoading.remove(uuid);
     }
 
     /** Visible name: nick if set, otherwise real name (what everyone should see). */
     public String getVisibleName(UUID uuid, String fallbackRealName) {
-        String v = liveVisibleName.get(uuid);
-        return (v == null || v.isBlank()) ? fallbackRealName : v;
+        return getRenderedName(uuid, fallbackRealName).raw();
+    }
+
+    /** {@link #getVisibleName} in every rendered form (colored, Component, plain). */
+    public RenderedName getRenderedName(UUID uuid, String fallbackRealName) {
+        RenderedName v = liveVisibleName.get(uuid);
+        return (v == null || v.raw().isBlank()) ? names.get(fallbackRealName) : v;
     }
 
     /** The raw nick stored in Redis (null if none). */
     public String getStoredNick(UUID uuid) {
-        return storedNick.get(uuid);
+        NickState s = storedState.get(uuid);
+        return s == null ? null : s.nick();
     }
 
-    /** True if the stored nick is an &k hide nick. */
+    /** The last applied state (null if nothing applied yet). */
+    public NickState getState(UUID uuid) {
+        return storedState.get(uuid);
+    }
+
+    /** True if the player is currently /hide'n. */
     public boolean isHidden(UUID uuid) {
-        return isHideNick(storedNick.get(uuid));
+        NickState s = storedState.get(uuid);
+        return s != null && s.hidden();
+    }
+
+    /** Cached prior nick: null = not loaded yet, "" = none. */
+    public String getCachedPrior(UUID uuid) {
+        NickState s = storedState.get(uuid);
+        if (s != null && s.prior() != null) return s.prior();
+        // Versioned states come from the hash or a binary update and are complete; only legacy text lacks prior
+        if (s != null && s.version() > 0) return "";
+        return priorNick.get(uuid);
+    }
+
+    /** Returns true if the caller should start loading the prior nick (only one load in flight per player). */
+    public boolean beginPriorLoad(UUID uuid) {
+        return priorLoading.add(uuid);
+    }
+
+    /** Finish a prior-nick load; a null {@code prior} with {@code ok == false} allows a retry later. */
+    public void finishPriorLoad(UUID uuid, String prior, boolean ok) {
+        priorLoading.remove(uuid);
+        if (ok) priorNick.put(uuid, prior == null ? "" : prior);
     }
 
     @EventHandler
     public void onJoin(PlayerJoinEvent e) {
         // Redis apply happens via JoinApplyListener after join.
         Player p = e.getPlayer();
-        liveVisibleName.put(p.getUniqueId(), p.getName());
-        storedNick.remove(p.getUniqueId());
+        liveVisibleName.put(p.getUniqueId(), names.get(p.getName()));
+        storedState.remove(p.getUniqueId());
+        priorNick.remove(p.getUniqueId());
+        // applied is kept: it already holds what JoinApplyListener set at LOWEST (cleared on quit)
     }
 
+    /** Run on the main thread (Folia: global region), right away if already there. */
     public void runSync(Runnable r) {
-        if (Bukkit.isPrimaryThread()) r.run();
-        else Bukkit.getScheduler().runTask(plugin, r);
+        scheduler.runGlobal(r);
+    }
+
+    /** Run on the thread that owns the player (the main thread outside Folia). */
+    public void runFor(Player p, Runnable r) {
+        scheduler.runFor(p, r);
     }
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A player's whole nick state, as stored in their Redis hash.
+ *
+ * @param nick    active nick with & codes (null = real name)
+ * @param prior   nick to restore on /unhide (null = real name)
+ * @param hidden  true while /hide is active
+ * @param version bumped on every write
+ */
+public record NickState(String nick, String prior, boolean hidden, long version) {
+
+    /** No nick, not hidden, never written. */
+    public static final NickState EMPTY = new NickState(null, null, false, 0L);
+
+    // Hash field names
+    public static final String F_NICK = "nick";
+    public static final String F_PRIOR = "prior";
+    public static final String F_HIDDEN = "hidden";
+    public static final String F_VERSION = "version";
+
+    public NickState {
+        if (nick != null && nick.isBlank()) nick = null;
+        if (prior != null && prior.isBlank()) prior = null;
+    }
+
+    public boolean hasNick() {
+        return nick != null;
+    }
+
+    /** Build from HGETALL output (an empty map means the player has no state). */
+    public static NickState fromHash(Map<String, String> hash) {
+        if (hash == null || hash.isEmpty()) return EMPTY;
+
+        long version = 0L;
+        String v = hash.get(F_VERSION);
+        if (v != null) {
+            try { version = Long.parseLong(v); } catch (NumberFormatException ignored) {}
+        }
+
+        return new NickState(hash.get(F_NICK), hash.get(F_PRIOR), "1".equals(hash.get(F_HIDDEN)), version);
+    }
+
+    public Map<String, String> toHash() {
+        Map<String, String> out = new HashMap<>(4);
+        if (nick != null) out.put(F_NICK, nick);
+        if (prior != null) out.put(F_PRIOR, prior);
+        out.put(F_HIDDEN, hidden ? "1" : "0");
+        out.put(F_VERSION, Long.toString(version));
+        return out;
+    }
+
+    /**
+     * State from the legacy string-key schema, where "hidden" was only implied by an
+     * &k / §k prefix on the nick. Only used for old pub/sub payloads and migration.
+     */
+    public static NickState fromLegacy(String nick, String prior) {
+        return new NickState(nick, prior, looksHidden(nick), 0L);
+    }
+
+    /** The legacy hide heuristic: nick starts with &k (or already colorized §k). */
+    public static boolean looksHidden(String nick) {
+        if (nick == null) return false;
+        String s = nick.trim();
+        return s.startsWith("&k") || s.startsWith("§k");
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.service;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.entity.Player;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Paper: the legacy setters (for plugins that still read the String names) followed by
+ * {@code displayName(Component)} / {@code playerListName(Component)}. Those two aren't in
+ * the Spigot API we compile against, so they are bound as method handles once, at startup.
+ */
+final class PaperNameApplier implements NameApplier {
+
+    private final MethodHandle displayName;
+    private final MethodHandle playerListName;
+
+    private PaperNameApplier(MethodHandle displayName, MethodHandle playerListName) {
+        this.displayName = displayName;
+        this.playerListName = playerListName;
+    }
+
+    /** Null unless both Adventure and Paper's Component name setters are present. */
+    static PaperNameApplier create() {
+        return create(Player.class);
+    }
+
+    /** Binds the setters declared on {@code playerType} (Player itself, or a test stand-in for Paper's). */
+    static PaperNameApplier create(Class<? extends Player> playerType) {
+        try {
+            Class.forName("net.kyori.adventure.text.Component");
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+
+        MethodType setter = MethodType.methodType(void.class, Component.class);
+        MethodType onPlayer = setter.insertParameterTypes(0, Player.class);
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            return new PaperNameApplier(
+                    lookup.findVirtual(playerType, "displayName", setter).asType(onPlayer),
+                    lookup.findVirtual(playerType, "playerListName", setter).asType(onPlayer));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String name() {
+        return "paper";
+    }
+
+    @Override
+    public void displayName(Player p, RenderedName name) {
+        p.setDisplayName(name.legacy());
+        invoke(displayName, p, name);
+    }
+
+    @Override
+    public void playerListName(Player p, RenderedName name) {
+        p.setPlayerListName(name.legacy());
+        invoke(playerListName, p, name);
+    }
+
+    // The legacy name is already set by now; a failing Component setter must not make the
+    // caller fall back and overwrite it, so (as before the applier) its failure is ignored
+    private static void invoke(MethodHandle setter, Player p, RenderedName name) {
+        try {
+            setter.invokeExact(p, (Component) name.component());
+        } catch (Throwable ignored) {
+        }
+    }
+}
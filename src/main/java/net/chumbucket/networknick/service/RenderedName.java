@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.service;
+
+import net.chumbucket.networknick.util.Msg;
+import org.bukkit.ChatColor;
+
+/**
+ * One visible name in every form it is applied in, rendered once: the raw &-coded string,
+ * the §-coded legacy string (display/list/custom name), the Adventure Component (Paper) and
+ * the plain text. Shared through {@link RenderedNames}, so treat it as immutable.
+ */
+public final class RenderedName {
+
+    private final String raw;
+    private final String legacy;
+    private final String plain;
+
+    // Built on first use; Object so this class loads without Adventure on the classpath
+    private volatile Object component;
+
+    RenderedName(String raw) {
+        this.raw = raw == null ? "" : raw;
+        this.legacy = Msg.color(this.raw);
+        this.plain = ChatColor.stripColor(legacy);
+    }
+
+    /** As stored, with & codes. */
+    public String raw() {
+        return raw;
+    }
+
+    /** With § codes, for the Bukkit String name setters. */
+    public String legacy() {
+        return legacy;
+    }
+
+    /** Without any color codes. */
+    public String plain() {
+        return plain;
+    }
+
+    /** The {@code net.kyori.adventure.text.Component} form (Paper only). */
+    public Object component() {
+        Object c = component;
+        if (c == null) {
+            // Benign race: two threads may both build it, either result is equal
+            c = Msg.component(raw);
+            component = c;
+        }
+        return c;
+    }
+}
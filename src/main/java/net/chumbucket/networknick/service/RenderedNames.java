@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.service;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Interning cache of {@link RenderedName}s keyed by the raw name, so applying, enforcing
+ * and placeholders render each distinct nick once instead of on every call. Bounded: once
+ * full, an arbitrary entry makes room for each new one (names in use are re-rendered at
+ * most once on their next lookup).
+ */
+final class RenderedNames {
+
+    private final int maxEntries;
+    private final ConcurrentHashMap<String, RenderedName> cache = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    RenderedNames(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    RenderedName get(String raw) {
+        String key = raw == null ? "" : raw;
+
+        RenderedName name = cache.get(key);
+        if (name != null) {
+            hits.incrementAndGet();
+            return name;
+        }
+
+        misses.incrementAndGet();
+        if (cache.size() >= maxEntries) {
+            Iterator<String> it = cache.keySet().iterator();
+            if (it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+        RenderedName fresh = new RenderedName(key);
+        RenderedName raced = cache.putIfAbsent(key, fresh);
+        return raced != null ? raced : fresh;
+    }
+
+    int size() {
+        return cache.size();
+    }
+
+    long hits() {
+        return hits.get();
+    }
+
+    long misses() {
+        return misses.get();
+    }
+}
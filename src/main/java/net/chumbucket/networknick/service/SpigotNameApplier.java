@@ -0,0 +1,32 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.service;
+
+import org.bukkit.entity.Player;
+
+/** Spigot: the §-coded legacy string setters. */
+final class SpigotNameApplier implements NameApplier {
+
+    @Override
+    public String name() {
+        return "spigot";
+    }
+
+    @Override
+    public void displayName(Player p, RenderedName name) {
+        p.setDisplayName(name.legacy());
+    }
+
+    @Override
+    public void playerListName(Player p, RenderedName name) {
+        p.setPlayerListName(name.legacy());
+    }
+}
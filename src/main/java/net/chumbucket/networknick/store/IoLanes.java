@@ -0,0 +1,208 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.store;
+
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Storage I/O executor: every task runs on its own virtual thread, but admission goes
+ * through three lanes so a join storm or a bulk resync can't delay the other kinds of work.
+ *
+ * At most {@code io.max-concurrency} tasks run at once (keep it at or below the Redis pool
+ * size), and each lane has its own cap on top ({@code io.lanes.*}). Whenever a slot frees
+ * up, queued LOGIN work starts first, then COMMAND, then BULK, so bulk jobs only ever use
+ * capacity the latency-sensitive lanes aren't asking for.
+ */
+final class IoLanes {
+
+    enum Lane {
+        /** Pre-login and join lookups: a player is waiting. */
+        LOGIN,
+        /** /nick, /hide, /unhide writes: a player is waiting for feedback. */
+        COMMAND,
+        /** Resyncs, journal replay, migration, placeholder backfill: nobody is waiting. */
+        BULK
+    }
+
+    private static final class LaneState {
+        final int limit;
+        final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+        int running;
+        int maxDepth;
+        long completed;
+
+        LaneState(int limit) {
+            this.limit = limit;
+        }
+    }
+
+    /** Per-lane counters for /networknick status. */
+    record Stats(Lane lane, int running, int limit, int queued, int maxQueued, long completed) {}
+
+    private final ExecutorService threads = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("NetworkNick-IO-", 0).factory());
+
+    private final int maxConcurrency;
+    private final Map<Lane, LaneState> lanes = new EnumMap<>(Lane.class);
+
+    // Guarded by this
+    private int running;
+    private boolean shutdown;
+
+    IoLanes(FileConfiguration cfg) {
+        maxConcurrency = Math.max(1, cfg.getInt("io.max-concurrency", 12));
+        lanes.put(Lane.LOGIN, new LaneState(Math.max(1, cfg.getInt("io.lanes.login", 8))));
+        lanes.put(Lane.COMMAND, new LaneState(Math.max(1, cfg.getInt("io.lanes.command", 4))));
+        lanes.put(Lane.BULK, new LaneState(Math.max(1, cfg.getInt("io.lanes.bulk", 2))));
+    }
+
+    /** A submitted task: fails its future instead of running if it is dropped at shutdown. */
+    private static final class Submitted<T> implements Runnable {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final Supplier<T> task;
+
+        Submitted(Supplier<T> task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            try {
+                future.complete(task.get());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+
+        void drop() {
+            future.completeExceptionally(new RejectedExecutionException("NetworkNick I/O shut down before this task ran"));
+        }
+    }
+
+    <T> CompletableFuture<T> submit(Lane lane, Supplier<T> task) {
+        Submitted<T> s = new Submitted<>(task);
+        execute(lane, s);
+        return s.future;
+    }
+
+    /** An {@link Executor} view of one lane. */
+    Executor executor(Lane lane) {
+        return task -> execute(lane, task);
+    }
+
+    void execute(Lane lane, Runnable task) {
+        synchronized (this) {
+            if (shutdown) throw new RejectedExecutionException("NetworkNick I/O is shut down");
+
+            LaneState s = lanes.get(lane);
+            s.queue.addLast(task);
+            s.maxDepth = Math.max(s.maxDepth, s.queue.size());
+        }
+        dispatch();
+    }
+
+    /** Start queued tasks in lane priority order while there are free slots. */
+    private void dispatch() {
+        while (true) {
+            Runnable next = null;
+            LaneState from = null;
+
+            synchronized (this) {
+                if (running >= maxConcurrency) return;
+
+                for (LaneState s : lanes.values()) { // EnumMap iterates LOGIN, COMMAND, BULK
+                    if (s.running < s.limit && !s.queue.isEmpty()) {
+                        next = s.queue.pollFirst();
+                        from = s;
+                        break;
+                    }
+                }
+                if (next == null) return;
+
+                from.running++;
+                running++;
+            }
+
+            final Runnable task = next;
+            final LaneState lane = from;
+            threads.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    synchronized (IoLanes.this) {
+                        lane.running--;
+                        lane.completed++;
+                        running--;
+                        IoLanes.this.notifyAll();
+                    }
+                    dispatch();
+                }
+            });
+        }
+    }
+
+    /** Refuse new work; queued and running tasks still finish. */
+    synchronized void shutdown() {
+        shutdown = true;
+    }
+
+    /**
+     * Wait up to {@code timeoutMs} for every queued and running task to finish. On timeout
+     * the rest is abandoned: queued tasks are dropped (failing their futures) and running
+     * ones interrupted. Either way the threads are shut down.
+     */
+    synchronized boolean awaitTermination(long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        try {
+            while (!idle()) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    for (LaneState s : lanes.values()) {
+                        for (Runnable r : s.queue) if (r instanceof Submitted<?> dropped) dropped.drop();
+                        s.queue.clear();
+                    }
+                    threads.shutdownNow();
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, left);
+            }
+            return true;
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+    private boolean idle() {
+        if (running > 0) return false;
+        for (LaneState s : lanes.values()) if (!s.queue.isEmpty()) return false;
+        return true;
+    }
+
+    synchronized Stats[] stats() {
+        Stats[] out = new Stats[Lane.values().length];
+        for (Map.Entry<Lane, LaneState> e : lanes.entrySet()) {
+            LaneState s = e.getValue();
+            out[e.getKey().ordinal()] = new Stats(e.getKey(), s.running, s.limit, s.queue.size(), s.maxDepth, s.completed);
+        }
+        return out;
+    }
+}
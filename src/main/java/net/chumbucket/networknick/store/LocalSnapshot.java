@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.store;
+
+import net.chumbucket.networknick.service.NickState;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * On-disk copy of the nick state of players recently seen on this server, so a restart
+ * doesn't start cold: joins can be served from it before the store answers, or while it
+ * can't (Redis down). Kept in a {@link MappedNickLog}, bounded to the
+ * {@code snapshot.max-entries} most recently seen players; players without a nick aren't
+ * kept (no entry means the real name, same as an empty state).
+ *
+ * This is a cache, not a store: appends aren't forced to disk one by one, and
+ * {@link NickBackend} refreshes every entry from the real store after each start.
+ */
+public final class LocalSnapshot {
+
+    // Don't bother compacting tiny logs
+    private static final int MIN_COMPACT_RECORDS = 1024;
+
+    private final JavaPlugin plugin;
+    private final Path path;
+    private final int maxEntries;
+
+    // Least recently seen first
+    private final LinkedHashMap<UUID, NickState> states;
+    private MappedNickLog log;
+
+    public LocalSnapshot(JavaPlugin plugin) {
+        this.plugin = plugin;
+        this.path = plugin.getDataFolder().toPath().resolve(plugin.getConfig().getString("snapshot.file", "snapshot.dat"));
+        this.maxEntries = Math.max(16, plugin.getConfig().getInt("snapshot.max-entries", 10000));
+        this.states = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, NickState> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /** Load the snapshot. Call before players can join; a missing or unreadable file just starts empty. */
+    public synchronized void open() {
+        if (log != null || !plugin.getConfig().getBoolean("snapshot.enabled", true)) return;
+        try {
+            log = MappedNickLog.open(path, states);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not open " + path.getFileName() + ", starting without a local snapshot: " + e.getMessage());
+            return;
+        }
+        states.values().removeIf(s -> !s.hasNick());
+        plugin.getLogger().info("Loaded " + states.size() + " player(s) from " + path.getFileName());
+    }
+
+    public synchronized void close() {
+        if (log == null) return;
+        try {
+            log.force();
+            log.close();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not close " + path.getFileName() + ": " + e.getMessage());
+        }
+        log = null;
+    }
+
+    /** Last state seen for a player, or null if they aren't in the snapshot. */
+    public synchronized NickState get(UUID uuid) {
+        return states.get(uuid);
+    }
+
+    /** Every player in the snapshot, least recently seen first. */
+    synchronized List<UUID> players() {
+        return new ArrayList<>(states.keySet());
+    }
+
+    /**
+     * Remember a player's state as read from (or written to) the store. Older versions and
+     * unversioned states (journaled writes, not stored yet) are ignored.
+     */
+    synchronized void record(UUID uuid, NickState state) {
+        if (log == null || state == null || state.version() <= 0L) return;
+
+        NickState cur = states.get(uuid);
+        if (cur != null && state.version() <= cur.version()) return;
+        if (cur == null && !state.hasNick()) return;
+
+        try {
+            log.append(uuid, state);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not write " + path.getFileName() + ": " + e.getMessage());
+            return;
+        }
+        if (state.hasNick()) states.put(uuid, state);
+        else states.remove(uuid);
+
+        if (log.records() > Math.max(MIN_COMPACT_RECORDS, maxEntries * 2)) compact();
+    }
+
+    /** Replace a player's entry with what the store holds now, whatever its version (e.g. after Redis was wiped). */
+    synchronized void reconcile(UUID uuid, NickState state) {
+        if (log == null || state == null) return;
+
+        NickState cur = states.get(uuid);
+        NickState next = state.hasNick() ? state : null;
+        if (Objects.equals(cur, next)) return;
+
+        try {
+            log.append(uuid, state);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not write " + path.getFileName() + ": " + e.getMessage());
+            return;
+        }
+        if (next != null) states.put(uuid, next);
+        else states.remove(uuid);
+    }
+
+    synchronized int size() {
+        return states.size();
+    }
+
+    private void compact() {
+        try {
+            // Insertion order of the copy is least recently seen first, so a reload rebuilds the same LRU
+            log.rewrite(new LinkedHashMap<>(states));
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not compact " + path.getFileName() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.store;
+
+import net.chumbucket.networknick.service.NickState;
+
+import java.util.UUID;
+
+/**
+ * Transport for the single-server stores: there is nobody else to tell, and the backend
+ * has already applied the change on this server, so publishing does nothing.
+ */
+public final class LocalTransport implements UpdateTransport {
+
+    @Override
+    public void subscribe(Listener listener) {}
+
+    @Override
+    public void unsubscribe() {}
+
+    @Override
+    public void publish(UUID uuid, NickState state) {}
+
+    @Override
+    public boolean echoes() {
+        return false;
+    }
+}
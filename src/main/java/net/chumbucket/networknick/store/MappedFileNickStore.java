@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.store;
+
+import net.chumbucket.networknick.service.NickState;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@code storage.type: file}. Persistent storage for a standalone server without Redis:
+ * every state lives in an in-memory map (lookups are a hash probe) and each write is
+ * appended to a {@link MappedNickLog} and flushed before it is acknowledged. The log is
+ * compacted once it holds {@code storage.file.compact-ratio} times more records than players.
+ */
+public final class MappedFileNickStore implements NickStore {
+
+    // Don't bother compacting tiny logs
+    private static final int MIN_COMPACT_RECORDS = 1024;
+
+    private final JavaPlugin plugin;
+    private final Path path;
+    private final int compactRatio;
+
+    private final ConcurrentHashMap<UUID, NickState> states = new ConcurrentHashMap<>();
+    private MappedNickLog log;
+
+    public MappedFileNickStore(JavaPlugin plugin) {
+        this.plugin = plugin;
+        this.path = plugin.getDataFolder().toPath().resolve(plugin.getConfig().getString("storage.file.name", "nicks.dat"));
+        this.compactRatio = Math.max(2, plugin.getConfig().getInt("storage.file.compact-ratio", 4));
+    }
+
+    @Override
+    public String name() {
+        return "file";
+    }
+
+    @Override
+    public synchronized void start() {
+        if (log != null) return;
+        try {
+            log = MappedNickLog.open(path, states);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open " + path.getFileName(), e);
+        }
+        plugin.getLogger().info("Loaded " + states.size() + " player(s) from " + path.getFileName());
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (log == null) return;
+        try {
+            log.close();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not close " + path.getFileName() + ": " + e.getMessage());
+        }
+        log = null;
+    }
+
+    @Override
+    public NickState get(UUID uuid) {
+        return states.getOrDefault(uuid, NickState.EMPTY);
+    }
+
+    @Override
+    public Map<UUID, NickState> getAll(Collection<UUID> uuids) {
+        Map<UUID, NickState> out = new HashMap<>(uuids.size() * 2);
+        for (UUID uuid : uuids) out.put(uuid, get(uuid));
+        return out;
+    }
+
+    @Override
+    public NickState set(UUID uuid, String nick) {
+        return update(uuid, cur -> NickTransitions.set(cur, nick)).state();
+    }
+
+    @Override
+    public NickState clear(UUID uuid) {
+        return update(uuid, NickTransitions::clear).state();
+    }
+
+    @Override
+    public Result toggleHide(UUID uuid, String hideNick) {
+        return update(uuid, cur -> NickTransitions.toggleHide(cur, hideNick));
+    }
+
+    @Override
+    public Result unhide(UUID uuid) {
+        return update(uuid, NickTransitions::unhide);
+    }
+
+    @Override
+    public synchronized void status(List<String> lines) {
+        lines.add("&7Storage: &ffile &7(" + path.getFileName() + "), &f" + states.size() + "&7 player(s), &f"
+                + (log == null ? 0 : log.records()) + "&7 record(s)");
+    }
+
+    /** Writes are serialized so the log order matches the version order; reads never wait. */
+    private synchronized Result update(UUID uuid, UnaryOperator<NickState> transition) {
+        if (log == null) throw new IllegalStateException("file store is not open");
+
+        NickState cur = get(uuid);
+        NickState next = transition.apply(cur);
+        if (next == null) return new Result(cur, false);
+
+        try {
+            log.append(uuid, next);
+            log.force();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        states.put(uuid, next);
+
+        if (log.records() > Math.max(MIN_COMPACT_RECORDS, states.size() * compactRatio)) compact();
+        return new Result(next, true);
+    }
+
+    private void compact() {
+        try {
+            log.rewrite(new HashMap<>(states));
+        } catch (IOException e) {
+            // The old log is still intact; try again on a later write
+            plugin.getLogger().warning("Could not compact " + path.getFileName() + ": " + e.getMessage());
+        }
+    }
+}
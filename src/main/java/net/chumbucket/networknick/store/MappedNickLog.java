@@ -0,0 +1,337 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.store;
+
+import net.chumbucket.networknick.service.NickState;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of player states in a memory-mapped file. The last record for a
+ * player wins; {@link #rewrite} compacts the log down to one record per player.
+ *
+ * Layout (big-endian):
+ * <pre>
+ *   i32  magic "NNL1"
+ *   record:
+ *     i32  payload length (0 = end of log)
+ *     i32  CRC32 of the payload
+ *     payload: the {@link UpdateCodec} entry layout
+ *       i64 uuid msb, i64 uuid lsb, u8 flags, i64 version, [u16 + nick], [u16 + prior]
+ * </pre>
+ * A record cut short by a crash fails its CRC, ends the log on load and is zeroed so
+ * the next append starts clean. Not thread-safe; callers serialize writes.
+ *
+ * Compaction writes a new generation ({@code <name>.1}, {@code <name>.2}, ...) instead of
+ * renaming over the mapped file, which some platforms refuse while any mapping of it is
+ * alive (Java only unmaps a buffer once it is garbage collected). The highest generation
+ * is the log; older ones are deleted right away when possible, otherwise on the next open.
+ */
+final class MappedNickLog implements AutoCloseable {
+
+    private static final int MAGIC = 0x4E4E4C31;
+    private static final int HEADER = 4;
+    private static final int RECORD_HEADER = 8;
+    private static final int MIN_SIZE = 64 * 1024;
+
+    // Base name; generation 0 is the file itself, generation n is "<name>.n"
+    private final Path path;
+    private long generation;
+    private Path file;
+    private FileChannel channel;
+    private MappedByteBuffer map;
+    private int records;
+
+    private MappedNickLog(Path path, long generation) {
+        this.path = path;
+        this.generation = generation;
+        this.file = generationFile(generation);
+    }
+
+    /** Open (creating if needed) and load the log; {@code into} receives the latest state per player. */
+    static MappedNickLog open(Path path, Map<UUID, NickState> into) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+
+        MappedNickLog log = new MappedNickLog(path, latestGeneration(path));
+        log.deleteStale();
+        log.map(Math.max(MIN_SIZE, Files.exists(log.file) ? Files.size(log.file) : 0L));
+
+        if (log.map.getInt(0) != MAGIC) {
+            if (log.map.getInt(0) != 0) throw new IOException(log.file.getFileName() + " is not a NetworkNick state log");
+            log.map.putInt(0, MAGIC);
+        }
+        log.load(into);
+        return log;
+    }
+
+    int records() {
+        return records;
+    }
+
+    void append(UUID uuid, NickState state) throws IOException {
+        if (map == null) throw new IOException(file.getFileName() + " is closed");
+        byte[] payload = encode(uuid, state);
+        int need = RECORD_HEADER + payload.length + RECORD_HEADER; // record + room for the end marker
+
+        if (map.position() + need > map.capacity()) {
+            long size = map.capacity();
+            while (map.position() + need > size) size *= 2;
+            if (size > Integer.MAX_VALUE) throw new IOException(file.getFileName() + " is full");
+            remap(size);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        // Payload and CRC first, length last: a torn write never looks like a complete record
+        int at = map.position();
+        map.putInt(at + 4, (int) crc.getValue());
+        map.put(at + RECORD_HEADER, payload);
+        map.putInt(at, payload.length);
+        map.position(at + RECORD_HEADER + payload.length);
+        records++;
+    }
+
+    /** Flush dirty pages to disk. */
+    void force() {
+        if (map != null) map.force();
+    }
+
+    /**
+     * Replace the log with exactly {@code states}: write them to a temp file with plain
+     * channel writes (never mapped), rename it to the next generation and switch to that.
+     */
+    void rewrite(Map<UUID, NickState> states) throws IOException {
+        int size = HEADER + RECORD_HEADER; // header + end marker
+        List<byte[]> payloads = new ArrayList<>(states.size());
+        for (Map.Entry<UUID, NickState> e : states.entrySet()) {
+            byte[] payload = encode(e.getKey(), e.getValue());
+            payloads.add(payload);
+            size += RECORD_HEADER + payload.length;
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(MAGIC);
+        for (byte[] payload : payloads) {
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            out.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+        }
+        int position = out.position();
+        out.putInt(0).putInt(0).flip();
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            while (out.hasRemaining()) ch.write(out);
+            ch.force(true);
+        }
+
+        // Nothing maps either file, and the target doesn't exist yet
+        long next = generation + 1;
+        Path target = generationFile(next);
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+
+        // Map the new generation before letting go of the old one, so a failure here leaves
+        // the old log in use
+        FileChannel newChannel = FileChannel.open(target, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer newMap;
+        try {
+            newMap = newChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(MIN_SIZE, size));
+        } catch (IOException | RuntimeException e) {
+            newChannel.close();
+            // Appends keep going to the old generation, so the new one must not win the next open
+            try {
+                Files.deleteIfExists(target);
+            } catch (IOException del) {
+                e.addSuppressed(del);
+            }
+            throw e;
+        }
+
+        Path old = file;
+        try {
+            close();
+        } catch (IOException | RuntimeException ignored) {
+            // The old generation is obsolete either way
+        }
+        channel = newChannel;
+        map = newMap;
+        map.position(position);
+        file = target;
+        generation = next;
+        records = states.size();
+
+        try {
+            Files.deleteIfExists(old);
+        } catch (IOException ignored) {
+            // Still mapped on some platforms until the buffer is collected; deleted on the next open
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel == null) return;
+        try {
+            map.force();
+        } finally {
+            channel.close();
+            channel = null;
+            map = null;
+        }
+    }
+
+    private Path generationFile(long g) {
+        return g == 0 ? path : path.resolveSibling(path.getFileName() + "." + g);
+    }
+
+    /** Highest generation present next to {@code path} (0 if none is). */
+    private static long latestGeneration(Path path) throws IOException {
+        String prefix = path.getFileName() + ".";
+        long latest = 0L;
+        try (DirectoryStream<Path> siblings = Files.newDirectoryStream(path.toAbsolutePath().getParent(), prefix + "*")) {
+            for (Path p : siblings) {
+                long g = generationOf(p.getFileName().toString(), prefix);
+                if (g > latest) latest = g;
+            }
+        }
+        return latest;
+    }
+
+    private static long generationOf(String name, String prefix) {
+        String suffix = name.substring(prefix.length());
+        if (suffix.isEmpty() || !suffix.chars().allMatch(Character::isDigit)) return -1L;
+        try {
+            return Long.parseLong(suffix);
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    // Older generations and a temp file left by an interrupted compaction; retried next open if locked
+    private void deleteStale() throws IOException {
+        String prefix = path.getFileName() + ".";
+        List<Path> stale = new ArrayList<>();
+        if (generation > 0) stale.add(path);
+        try (DirectoryStream<Path> siblings = Files.newDirectoryStream(path.toAbsolutePath().getParent(), prefix + "*")) {
+            for (Path p : siblings) {
+                String name = p.getFileName().toString();
+                long g = generationOf(name, prefix);
+                if (name.equals(prefix + "tmp") || (g >= 0 && g != generation)) stale.add(p);
+            }
+        }
+        for (Path p : stale) {
+            try {
+                Files.deleteIfExists(p);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void map(long size) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private void remap(long size) throws IOException {
+        int position = map.position();
+        map.force();
+        channel.close();
+        map(size);
+        map.position(position);
+    }
+
+    private void load(Map<UUID, NickState> into) {
+        int at = HEADER;
+        Map<UUID, NickState> loaded = new LinkedHashMap<>();
+
+        while (at + RECORD_HEADER <= map.capacity()) {
+            int len = map.getInt(at);
+            if (len <= 0 || at + RECORD_HEADER + len > map.capacity()) break;
+
+            byte[] payload = new byte[len];
+            map.get(at + RECORD_HEADER, payload);
+
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != map.getInt(at + 4)) break;
+
+            try {
+                ByteBuffer in = ByteBuffer.wrap(payload);
+                UUID uuid = new UUID(in.getLong(), in.getLong());
+                loaded.put(uuid, decode(in));
+            } catch (BufferUnderflowException bad) {
+                break;
+            }
+
+            at += RECORD_HEADER + len;
+            records++;
+        }
+
+        // Stopped on a bad record rather than the end marker: zero the rest so a torn write
+        // can't be mistaken for records later
+        if (at + RECORD_HEADER <= map.capacity() && (map.getInt(at) != 0 || map.getInt(at + 4) != 0)) {
+            byte[] zeros = new byte[8192];
+            for (int i = at; i < map.capacity(); i += zeros.length) {
+                map.put(i, zeros, 0, Math.min(zeros.length, map.capacity() - i));
+            }
+        }
+
+        map.position(at);
+        into.putAll(loaded);
+    }
+
+    private static byte[] encode(UUID uuid, NickState state) {
+        byte[] nick = state.nick() == null ? null : state.nick().getBytes(StandardCharsets.UTF_8);
+        byte[] prior = state.prior() == null ? null : state.prior().getBytes(StandardCharsets.UTF_8);
+
+        int flags = (state.hidden() ? UpdateCodec.FLAG_HIDDEN : 0)
+                | (nick != null ? UpdateCodec.FLAG_NICK : 0)
+                | (prior != null ? UpdateCodec.FLAG_PRIOR : 0);
+
+        ByteBuffer out = ByteBuffer.allocate(16 + 1 + 8 + (nick == null ? 0 : 2 + nick.length) + (prior == null ? 0 : 2 + prior.length));
+        out.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+        out.put((byte) flags).putLong(state.version());
+        if (nick != null) out.putShort((short) nick.length).put(nick);
+        if (prior != null) out.putShort((short) prior.length).put(prior);
+        return out.array();
+    }
+
+    private static NickState decode(ByteBuffer in) {
+        int flags = in.get() & 0xFF;
+        long version = in.getLong();
+        String nick = (flags & UpdateCodec.FLAG_NICK) != 0 ? string(in) : null;
+        String prior = (flags & UpdateCodec.FLAG_PRIOR) != 0 ? string(in) : null;
+        return new NickState(nick, prior, (flags & UpdateCodec.FLAG_HIDDEN) != 0, version);
+    }
+
+    private static String string(ByteBuffer in) {
+        byte[] b = new byte[in.getShort() & 0xFFFF];
+        in.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
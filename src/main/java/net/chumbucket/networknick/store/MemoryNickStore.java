@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.store;
+
+import net.chumbucket.networknick.service.NickState;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@code storage.type: memory}. States live in a ConcurrentHashMap and every transition
+ * is a compare-and-set retry loop, so reads never block and writers never hold a lock.
+ * Nothing survives a restart: meant for single-server setups and tests.
+ */
+public final class MemoryNickStore implements NickStore {
+
+    private final ConcurrentHashMap<UUID, NickState> states = new ConcurrentHashMap<>();
+
+    @Override
+    public String name() {
+        return "memory";
+    }
+
+    @Override
+    public void start() {}
+
+    @Override
+    public void stop() {}
+
+    @Override
+    public NickState get(UUID uuid) {
+        return states.getOrDefault(uuid, NickState.EMPTY);
+    }
+
+    @Override
+    public Map<UUID, NickState> getAll(Collection<UUID> uuids) {
+        Map<UUID, NickState> out = new HashMap<>(uuids.size() * 2);
+        for (UUID uuid : uuids) out.put(uuid, get(uuid));
+        return out;
+    }
+
+    @Override
+    public NickState set(UUID uuid, String nick) {
+        return update(uuid, cur -> NickTransitions.set(cur, nick)).state();
+    }
+
+    @Override
+    public NickState clear(UUID uuid) {
+        return update(uuid, NickTransitions::clear).state();
+    }
+
+    @Override
+    public Result toggleHide(UUID uuid, String hideNick) {
+        return update(uuid, cur -> NickTransitions.toggleHide(cur, hideNick));
+    }
+
+    @Override
+    public Result unhide(UUID uuid) {
+        return update(uuid, NickTransitions::unhide);
+    }
+
+    @Override
+    public void status(List<String> lines) {
+        lines.add("&7Storage: &fmemory&7, &f" + states.size() + "&7 player(s)");
+    }
+
+    /** Apply {@code transition} atomically; a null result leaves the state untouched. */
+    private Result update(UUID uuid, UnaryOperator<NickState> transition) {
+        while (true) {
+            NickState cur = states.get(uuid);
+            NickState next = transition.apply(cur == null ? NickState.EMPTY : cur);
+            if (next == null) return new Result(cur == null ? NickState.EMPTY : cur, false);
+
+            boolean swapped = cur == null ? states.putIfAbsent(uuid, next) == null : states.replace(uuid, cur, next);
+            if (swapped) return new Result(next, true);
+        }
+    }
+}
@@ -0,0 +1,432 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.store;
+
+import net.chumbucket.networknick.redis.RedisBus;
+import net.chumbucket.networknick.service.NickService;
+import net.chumbucket.networknick.service.NickState;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.logging.Level;
+
+/**
+ * What the rest of the plugin talks to: an async nick API over whichever {@link NickStore}
+ * and {@link UpdateTransport} {@code storage.type} selects. Store calls run on the
+ * NetworkNick-IO virtual threads ({@link IoLanes}), never the tick thread: login lookups,
+ * command writes and bulk work each have their own lane. Received updates are applied to
+ * online players in one main-thread pass.
+ *
+ * Writes are applied on this server as soon as the store accepts them, then published.
+ * Every published frame carries this server's id as its origin, so when our own update
+ * comes back from the transport it is recognised and dropped instead of applied twice.
+ */
+public final class NickBackend implements UpdateTransport.Listener {
+
+    // The origin's length goes on the wire (and in the Lua publish) as one byte
+    private static final int MAX_SERVER_ID_BYTES = 255;
+    // Players per store read when reconciling the local snapshot
+    private static final int RECONCILE_CHUNK = 512;
+
+    private final JavaPlugin plugin;
+    private final NickService service;
+    private final String serverId;
+    private final NickStore store;
+    private final UpdateTransport transport;
+
+    // On-disk copy of recently seen players' states; outlives reloads
+    private final LocalSnapshot snapshot;
+
+    // How long stop() waits for queued work (and a final store flush) before stopping the store
+    private final long drainMs;
+
+    private final IoLanes io;
+    private final Set<String> mainThreadWarned = ConcurrentHashMap.newKeySet();
+
+    // Versions applied locally whose own echo is still on its way back: only for players on this
+    // server (anyone else's echo is dropped as not here, and with presence routing never comes back)
+    private static final int MAX_PENDING_ECHOES = 4096;
+    private final Map<UUID, Long> pendingEchoes = new ConcurrentHashMap<>();
+    private final AtomicLong appliedLocally = new AtomicLong();
+    private final AtomicLong echoesDropped = new AtomicLong();
+
+    // Who is on this server, kept off the main thread so received updates can be filtered there
+    private final Set<UUID> online = ConcurrentHashMap.newKeySet();
+    private final AtomicLong notHere = new AtomicLong();
+
+    private NickBackend(JavaPlugin plugin, NickService service, LocalSnapshot snapshot, String serverId, IoLanes io,
+                        NickStore store, UpdateTransport transport) {
+        this.plugin = plugin;
+        this.service = service;
+        this.snapshot = snapshot;
+        this.serverId = serverId;
+        this.io = io;
+        this.store = store;
+        this.transport = transport;
+        this.drainMs = Math.max(0L, plugin.getConfig().getLong("journal.drain-ms", 3000L));
+    }
+
+    /** Build the backend configured by {@code storage.type} (redis, memory or file). */
+    public static NickBackend create(JavaPlugin plugin, NickService service, LocalSnapshot snapshot) {
+        Objects.requireNonNull(plugin, "plugin");
+        Objects.requireNonNull(service, "service");
+        Objects.requireNonNull(snapshot, "snapshot");
+
+        String serverId = serverId(plugin);
+        IoLanes io = new IoLanes(plugin.getConfig());
+
+        String type = plugin.getConfig().getString("storage.type", "redis").toLowerCase(Locale.ROOT);
+        return switch (type) {
+            case "memory" -> new NickBackend(plugin, service, snapshot, serverId, io, new MemoryNickStore(), new LocalTransport());
+            case "file" -> new NickBackend(plugin, service, snapshot, serverId, io, new MappedFileNickStore(plugin), new LocalTransport());
+            default -> {
+                if (!type.equals("redis")) plugin.getLogger().warning("Unknown storage.type '" + type + "', using redis.");
+                // Journal replay and script preload are background work
+                RedisBus bus = new RedisBus(plugin, serverId, io.executor(IoLanes.Lane.BULK));
+                yield new NickBackend(plugin, service, snapshot, serverId, io, bus, bus);
+            }
+        };
+    }
+
+    /** A backend over a given store and transport, whatever {@code storage.type} says (used by tests). */
+    static NickBackend create(JavaPlugin plugin, NickService service, LocalSnapshot snapshot,
+                              NickStore store, UpdateTransport transport) {
+        return new NickBackend(plugin, service, snapshot, serverId(plugin), new IoLanes(plugin.getConfig()), store, transport);
+    }
+
+    // Origin id stamped on every update this server publishes
+    private static String serverId(JavaPlugin plugin) {
+        String id = plugin.getConfig().getString("sync.server-id", "");
+        if (id == null || id.isBlank()) id = UUID.randomUUID().toString().substring(0, 8);
+        if (id.getBytes(StandardCharsets.UTF_8).length <= MAX_SERVER_ID_BYTES) return id;
+
+        // Cut on a code point boundary so the id stays valid UTF-8
+        int bytes = 0;
+        int end = 0;
+        while (end < id.length()) {
+            int cp = id.codePointAt(end);
+            int len = cp < 0x80 ? 1 : cp < 0x800 ? 2 : cp < 0x10000 ? 3 : 4;
+            if (bytes + len > MAX_SERVER_ID_BYTES) break;
+            bytes += len;
+            end += Character.charCount(cp);
+        }
+        String cut = id.substring(0, end);
+        plugin.getLogger().warning("sync.server-id is longer than " + MAX_SERVER_ID_BYTES + " UTF-8 bytes; using '" + cut + "'.");
+        return cut;
+    }
+
+    /** Id this server stamps on the updates it publishes. */
+    public String serverId() {
+        return serverId;
+    }
+
+    /** Lines (with & colors) describing the store and transport, for /networknick status. */
+    public List<String> statusLines() {
+        List<String> lines = new ArrayList<>();
+        store.status(lines);
+        // The Redis bus is both, and reports everything from status() once
+        if (transport != store) transport.status(lines);
+        for (IoLanes.Stats l : io.stats()) {
+            lines.add("&7I/O " + l.lane().name().toLowerCase(Locale.ROOT) + ": &f" + l.running() + "/" + l.limit()
+                    + "&7 running, &f" + l.queued() + "&7 queued (max &f" + l.maxQueued() + "&7), &f"
+                    + l.completed() + "&7 done");
+        }
+        lines.add("&7Local-first: &f" + appliedLocally.get() + "&7 applied on write, &f"
+                + echoesDropped.get() + "&7 own echoes dropped");
+        lines.add("&7Local snapshot: &f" + snapshot.size() + "&7 player(s)");
+        lines.add("&7Received updates for players not here: &f" + notHere.get() + "&7 (skipped off the main thread)");
+        return lines;
+    }
+
+    /** The store's circuit breaker state ("closed", "open" or "half-open"), for %networknick_breaker%. */
+    public String breakerState() {
+        return store.breakerState();
+    }
+
+    public void start() {
+        try {
+            store.start();
+        } catch (RuntimeException e) {
+            plugin.getLogger().log(Level.SEVERE, "Could not start the " + store.name() + " nick store", e);
+            return;
+        }
+        for (Player p : Bukkit.getOnlinePlayers()) online.add(p.getUniqueId());
+        transport.subscribe(this);
+
+        // On startup, load & apply for online players
+        resyncOnline();
+
+        // Then bring the on-disk snapshot up to date with the store, in the background
+        List<UUID> known = snapshot.players();
+        if (!known.isEmpty()) {
+            submit(IoLanes.Lane.BULK, () -> {
+                for (int from = 0; from < known.size(); from += RECONCILE_CHUNK) {
+                    Map<UUID, NickState> fresh = store.getAll(known.subList(from, Math.min(known.size(), from + RECONCILE_CHUNK)));
+                    for (Map.Entry<UUID, NickState> e : fresh.entrySet()) snapshot.reconcile(e.getKey(), e.getValue());
+                }
+                return null;
+            });
+        }
+    }
+
+    public void stop() {
+        transport.unsubscribe();
+
+        // let queued writes finish (and flush anything the store buffered) before it goes away
+        submit(IoLanes.Lane.BULK, () -> {
+            store.flush();
+            return null;
+        });
+        io.shutdown();
+        try { io.awaitTermination(drainMs); }
+        catch (InterruptedException ignored) { Thread.currentThread().interrupt(); }
+
+        store.stop();
+    }
+
+    // ---------------------------------------------------------------------
+    // Incoming updates
+    // ---------------------------------------------------------------------
+
+    /**
+     * Queue every update in the received frames for the main thread, skipping our own
+     * echoes: updates from this server's origin at exactly the version we already applied.
+     * Anything else from our origin (e.g. a journal replay's real state) is still applied.
+     */
+    @Override
+    public void onFrames(List<UpdateCodec.Frame> frames) {
+        for (UpdateCodec.Frame frame : frames) {
+            boolean ours = serverId.equals(frame.origin());
+            for (UpdateCodec.NickUpdate u : frame.updates()) {
+                if (ours && pendingEchoes.remove(u.uuid(), u.state().version())) {
+                    echoesDropped.incrementAndGet();
+                    continue;
+                }
+                if (!online.contains(u.uuid())) {
+                    notHere.incrementAndGet();
+                    continue;
+                }
+                snapshot.record(u.uuid(), u.state());
+                service.queueApply(u.uuid(), u.state());
+            }
+        }
+    }
+
+    @Override
+    public void onGap() {
+        service.runSync(this::resyncOnline);
+    }
+
+    @Override
+    public Set<UUID> online() {
+        return Collections.unmodifiableSet(online);
+    }
+
+    /**
+     * Re-fetch every online player's nick in bulk (async) and queue the results for the
+     * main thread. Call from the main thread.
+     */
+    public void resyncOnline() {
+        List<UUID> online = new ArrayList<>();
+        for (Player p : Bukkit.getOnlinePlayers()) online.add(p.getUniqueId());
+        if (online.isEmpty()) return;
+
+        getStatesAsync(online).thenAccept(service::queueApply);
+    }
+
+    // ---------------------------------------------------------------------
+    // Async API (runs on the NetworkNick-IO lanes, never the tick thread)
+    // ---------------------------------------------------------------------
+
+    /** Lookup in the login lane, ahead of commands and bulk work. */
+    public CompletableFuture<NickState> getStateAsync(UUID uuid) {
+        return submit(IoLanes.Lane.LOGIN, () -> read(uuid));
+    }
+
+    /**
+     * A player joined: count them as here (so received updates for them are applied), tell
+     * the transport, then look up their state. Call from the join event, on the main thread.
+     */
+    public CompletableFuture<NickState> joinAsync(UUID uuid) {
+        online.add(uuid);
+        return submit(IoLanes.Lane.LOGIN, () -> {
+            // Registered before the read, so a write routed by the old presence is already visible to it
+            transport.playerJoined(uuid);
+            return read(uuid);
+        });
+    }
+
+    /** A player left this server. */
+    public void quit(UUID uuid) {
+        online.remove(uuid);
+        pendingEchoes.remove(uuid);
+        submit(IoLanes.Lane.BULK, () -> {
+            transport.playerLeft(uuid);
+            return null;
+        });
+    }
+
+    /** Lookup nobody is waiting on (e.g. placeholder backfill): runs in the bulk lane. */
+    public CompletableFuture<NickState> getStateInBackground(UUID uuid) {
+        return submit(IoLanes.Lane.BULK, () -> store.get(uuid));
+    }
+
+    public CompletableFuture<Map<UUID, NickState>> getStatesAsync(Collection<UUID> uuids) {
+        return submit(IoLanes.Lane.BULK, () -> remember(store.getAll(uuids)));
+    }
+
+    /** Set (or with null, remove) the nick. */
+    public CompletableFuture<Void> setNickAsync(UUID uuid, String nameOrNull) {
+        return submit(IoLanes.Lane.COMMAND, () -> {
+            NickState state = store.set(uuid, nameOrNull == null ? "" : nameOrNull);
+            if (state != null) commit(uuid, state);
+            else applyJournaled(uuid, cur -> new NickState(nameOrNull, cur.prior(), false, 0L));
+            return null;
+        });
+    }
+
+    /** Remove the nick and any stored prior nick. */
+    public CompletableFuture<Void> clearNickAsync(UUID uuid) {
+        return submit(IoLanes.Lane.COMMAND, () -> {
+            NickState state = store.clear(uuid);
+            if (state != null) commit(uuid, state);
+            else applyJournaled(uuid, cur -> NickState.EMPTY);
+            return null;
+        });
+    }
+
+    /**
+     * /hide toggle: if the player is hidden, restore their prior nick (or real name);
+     * otherwise remember their current nick as prior and apply {@code hideNick}.
+     */
+    public CompletableFuture<NickChange> toggleHideAsync(UUID uuid, String hideNick) {
+        return submit(IoLanes.Lane.COMMAND, () -> {
+            NickStore.Result r = store.toggleHide(uuid, hideNick);
+            commit(uuid, r.state());
+            return new NickChange(r.state().hidden() ? NickChange.Kind.HIDDEN : NickChange.Kind.UNHIDDEN, r.state().nick());
+        });
+    }
+
+    /** Restore a hidden player's prior nick (or real name). No-op if they aren't hidden. */
+    public CompletableFuture<NickChange> unhideAsync(UUID uuid) {
+        return submit(IoLanes.Lane.COMMAND, () -> {
+            NickStore.Result r = store.unhide(uuid);
+            if (!r.changed()) return new NickChange(NickChange.Kind.NOT_HIDDEN, r.state().nick());
+
+            commit(uuid, r.state());
+            return new NickChange(NickChange.Kind.UNHIDDEN, r.state().nick());
+        });
+    }
+
+    /** Copy legacy nick/prior keys into the current layout (Redis only); resolves to the number migrated. */
+    public CompletableFuture<Long> migrateLegacyAsync(boolean deleteLegacy) {
+        return submit(IoLanes.Lane.BULK, () -> store.migrateLegacy(deleteLegacy));
+    }
+
+    /** A write was stored: show it here right away, then tell the other servers. */
+    private void commit(UUID uuid, NickState state) {
+        if (transport.echoes() && online.contains(uuid)) {
+            if (pendingEchoes.size() >= MAX_PENDING_ECHOES) pendingEchoes.clear(); // echoes lost (e.g. transport down)
+            pendingEchoes.put(uuid, state.version());
+        }
+        snapshot.record(uuid, state);
+        applyLocal(uuid, state);
+        transport.publish(uuid, state);
+    }
+
+    private NickState read(UUID uuid) {
+        NickState state = store.get(uuid);
+        snapshot.record(uuid, state);
+        return state;
+    }
+
+    private Map<UUID, NickState> remember(Map<UUID, NickState> states) {
+        for (Map.Entry<UUID, NickState> e : states.entrySet()) snapshot.record(e.getKey(), e.getValue());
+        return states;
+    }
+
+    /**
+     * A write was journaled, not stored, so its version isn't known yet: show the expected
+     * result unversioned (built from what the player has now); the real state replaces it
+     * once the journal is replayed.
+     */
+    private void applyJournaled(UUID uuid, UnaryOperator<NickState> expected) {
+        service.runSync(() -> {
+            Player p = Bukkit.getPlayer(uuid);
+            if (p == null || !p.isOnline()) return;
+            service.runFor(p, () -> {
+                NickState cur = service.getState(uuid);
+                service.applyToPlayer(p, expected.apply(cur == null ? NickState.EMPTY : cur));
+            });
+        });
+    }
+
+    private void applyLocal(UUID uuid, NickState state) {
+        appliedLocally.incrementAndGet();
+        service.queueApply(uuid, state);
+    }
+
+    private <T> CompletableFuture<T> submit(IoLanes.Lane lane, Supplier<T> task) {
+        try {
+            return io.submit(lane, task);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new IllegalStateException("NickBackend is stopped", e));
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Blocking API (only for threads that may block, e.g. AsyncPlayerPreLoginEvent)
+    // ---------------------------------------------------------------------
+
+    /**
+     * Current state, or null if the store couldn't be read. Still goes through the login
+     * lane, so pre-login lookups share its limit (and its priority) with join lookups.
+     * Never blocks the main thread: called there, it returns null without a lookup.
+     */
+    public NickState getState(UUID uuid) {
+        if (onMainThread("getState")) return null;
+        try {
+            return getStateAsync(uuid).join();
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    /**
+     * Guard for the "no store I/O on the tick thread" rule: true if called from the main
+     * thread, where the caller must not block. The first time per operation logs the stack.
+     */
+    private boolean onMainThread(String op) {
+        if (!Bukkit.isPrimaryThread()) return false;
+        if (mainThreadWarned.add(op)) {
+            plugin.getLogger().log(Level.WARNING, "Blocking nick store call '" + op + "' on the main thread refused; use the async API.",
+                    new IllegalStateException("main-thread store I/O"));
+        }
+        return true;
+    }
+}
@@ -0,0 +1,16 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.store;
+
+/** Outcome of a hide/unhide transition. {@code nick} is the new visible nick, or null for the real name. */
+public record NickChange(Kind kind, String nick) {
+    public enum Kind { HIDDEN, UNHIDDEN, NOT_HIDDEN }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.store;
+
+import net.chumbucket.networknick.service.NickState;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Where player nick state is kept. Every transition is atomic per player, bumps the
+ * state version and returns the state it stored (see {@link NickTransitions} for the
+ * exact rules every implementation follows).
+ *
+ * Methods may block and are only called off the main thread ({@link NickBackend} runs
+ * them on its I/O executor, or from async events).
+ */
+public interface NickStore {
+
+    /** A write's stored state, and whether the write changed anything. */
+    record Result(NickState state, boolean changed) {}
+
+    /** Short name for logs and /networknick status. */
+    String name();
+
+    void start();
+
+    /** Push out anything buffered; runs on the I/O executor just before {@link #stop}. */
+    default void flush() {}
+
+    /** Called once the backend's queued work has drained. */
+    void stop();
+
+    /** Current state ({@link NickState#EMPTY} if none); throws if the store can't be read. */
+    NickState get(UUID uuid);
+
+    /**
+     * Bulk lookup. Players that couldn't be read are left out entirely, so callers don't
+     * mistake an error for "no nick".
+     */
+    Map<UUID, NickState> getAll(Collection<UUID> uuids);
+
+    /**
+     * Set (or with a blank nick, remove) the nick, leaving the prior nick alone. Returns
+     * the new state, or null if the write was accepted but isn't stored yet (journaled).
+     */
+    NickState set(UUID uuid, String nick);
+
+    /** Remove the nick and the prior nick. Same return contract as {@link #set}. */
+    NickState clear(UUID uuid);
+
+    /** Unhide when hidden, otherwise save the current nick as prior and hide as {@code hideNick}. */
+    Result toggleHide(UUID uuid, String hideNick);
+
+    /** Restore the prior nick if hidden; otherwise return the current state unchanged. */
+    Result unhide(UUID uuid);
+
+    /** Copy players out of the 1.0.x key layout; returns how many were migrated. */
+    default long migrateLegacy(boolean deleteLegacy) {
+        throw new UnsupportedOperationException("nothing to migrate with storage.type: " + name());
+    }
+
+    /**
+     * "closed", "open" or "half-open": whether the store is currently failing fast instead
+     * of waiting on a backend that is down. Local stores can't degrade and are always closed.
+     */
+    default String breakerState() {
+        return "closed";
+    }
+
+    /** Extra lines (with & colors) for /networknick status. */
+    default void status(List<String> lines) {}
+}
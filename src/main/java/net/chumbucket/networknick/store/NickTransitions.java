@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.store;
+
+import net.chumbucket.networknick.service.NickState;
+
+/**
+ * The nick transitions as pure functions of the current state, for stores that keep
+ * state in the JVM. They match the Lua transition scripts the Redis store runs.
+ */
+final class NickTransitions {
+
+    private NickTransitions() {}
+
+    /** Set (or with a blank nick, remove) the nick. Leaves the prior nick alone. */
+    static NickState set(NickState cur, String nick) {
+        return new NickState(nick, cur.prior(), false, cur.version() + 1);
+    }
+
+    /** Remove both the nick and the prior nick (the version survives). */
+    static NickState clear(NickState cur) {
+        return new NickState(null, null, false, cur.version() + 1);
+    }
+
+    /** Unhide when hidden, else save the current nick as prior and hide as {@code hideNick}. */
+    static NickState toggleHide(NickState cur, String hideNick) {
+        if (cur.hidden()) return restorePrior(cur);
+        return new NickState(hideNick, cur.nick(), true, cur.version() + 1);
+    }
+
+    /** Restore the prior nick (or real name) if hidden; null if not hidden (nothing to do). */
+    static NickState unhide(NickState cur) {
+        return cur.hidden() ? restorePrior(cur) : null;
+    }
+
+    private static NickState restorePrior(NickState cur) {
+        return new NickState(cur.prior(), null, false, cur.version() + 1);
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.store;
+
+import net.chumbucket.networknick.service.NickState;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Wire format for nick updates between servers (pub/sub messages and stream entries).
+ *
+ * Binary frame (big-endian), format version 1:
+ * <pre>
+ *   u8   magic (0xA7)
+ *   u8   format version (1)
+ *   i64  timestamp, epoch millis
+ *   u8   origin length, then origin server id (UTF-8)
+ *   u16  entry count
+ *   entry:
+ *     i64 uuid msb, i64 uuid lsb
+ *     u8  flags: 1 = hidden, 2 = has nick, 4 = has prior
+ *     i64 state version
+ *     [u16 length + UTF-8 nick]   if flag 2
+ *     [u16 length + UTF-8 prior]  if flag 4
+ * </pre>
+ * The same layout is produced by {@link #encode} and, for single updates, in Lua by
+ * the Redis transition scripts ({@code redis.RedisScripts}); keep all three in sync.
+ *
+ * The decoder also accepts the legacy 1.0.x text payload {@code "<uuid>|<nick>"} so mixed
+ * versions can run side by side during a rolling upgrade. The magic byte can never start
+ * a legacy payload (those start with a hex digit), and older servers simply fail to parse
+ * a binary frame as a UUID and drop it.
+ */
+public final class UpdateCodec {
+
+    static final int MAGIC = 0xA7;
+    static final int FORMAT_V1 = 1;
+
+    static final int FLAG_HIDDEN = 1;
+    static final int FLAG_NICK = 2;
+    static final int FLAG_PRIOR = 4;
+
+    /** Most entries one frame can hold (the count is a u16). */
+    static final int MAX_ENTRIES = 0xFFFF;
+
+    private static final int UUID_TEXT_LEN = 36;
+
+    private UpdateCodec() {}
+
+    /** One player's new state. */
+    public record NickUpdate(UUID uuid, NickState state) {}
+
+    /**
+     * A decoded message. Legacy text payloads have no origin (null), timestamp 0 and a
+     * state with unknown prior.
+     */
+    public record Frame(String origin, long timestamp, List<NickUpdate> updates) {
+        public boolean legacy() {
+            return origin == null;
+        }
+    }
+
+    /** Encode one frame; {@code origin} must fit in 255 UTF-8 bytes and {@code updates} in {@link #MAX_ENTRIES}. */
+    public static byte[] encode(String origin, long timestamp, List<NickUpdate> updates) {
+        byte[] originBytes = origin.getBytes(StandardCharsets.UTF_8);
+        if (originBytes.length > 0xFF) throw new IllegalArgumentException("origin too long");
+        if (updates.size() > MAX_ENTRIES) throw new IllegalArgumentException("too many entries");
+
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(16 + originBytes.length + updates.size() * 48);
+        try (DataOutputStream out = new DataOutputStream(buf)) {
+            out.writeByte(MAGIC);
+            out.writeByte(FORMAT_V1);
+            out.writeLong(timestamp);
+            out.writeByte(originBytes.length);
+            out.write(originBytes);
+            out.writeShort(updates.size());
+
+            for (NickUpdate u : updates) {
+                NickState st = u.state();
+                int flags = (st.hidden() ? FLAG_HIDDEN : 0)
+                        | (st.nick() != null ? FLAG_NICK : 0)
+                        | (st.prior() != null ? FLAG_PRIOR : 0);
+
+                out.writeLong(u.uuid().getMostSignificantBits());
+                out.writeLong(u.uuid().getLeastSignificantBits());
+                out.writeByte(flags);
+                out.writeLong(st.version());
+                if (st.nick() != null) writeString(out, st.nick());
+                if (st.prior() != null) writeString(out, st.prior());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buf.toByteArray();
+    }
+
+    /** The legacy 1.0.x text payload for one update. */
+    public static String encodeLegacy(NickUpdate u) {
+        String nick = u.state().nick();
+        return u.uuid() + "|" + (nick == null ? "" : nick);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        if (b.length > 0xFFFF) throw new IllegalArgumentException("string too long");
+        out.writeShort(b.length);
+        out.write(b);
+    }
+
+    /** Decode a binary frame or legacy text payload; null if malformed or from an unknown format version. */
+    public static Frame decode(byte[] m) {
+        if (m == null || m.length == 0) return null;
+        if ((m[0] & 0xFF) != MAGIC) return decodeLegacy(m);
+        if (m.length < 2 || (m[1] & 0xFF) != FORMAT_V1) return null;
+
+        try {
+            int pos = 2;
+            long timestamp = readLong(m, pos);
+            pos += 8;
+
+            int originLen = m[pos++] & 0xFF;
+            String origin = new String(m, pos, originLen, StandardCharsets.UTF_8);
+            pos += originLen;
+
+            int count = readU16(m, pos);
+            pos += 2;
+
+            List<NickUpdate> updates = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long msb = readLong(m, pos);
+                long lsb = readLong(m, pos + 8);
+                int flags = m[pos + 16] & 0xFF;
+                long version = readLong(m, pos + 17);
+                pos += 25;
+
+                String nick = null;
+                if ((flags & FLAG_NICK) != 0) {
+                    int len = readU16(m, pos);
+                    nick = new String(m, pos + 2, len, StandardCharsets.UTF_8);
+                    pos += 2 + len;
+                }
+
+                String prior = null;
+                if ((flags & FLAG_PRIOR) != 0) {
+                    int len = readU16(m, pos);
+                    prior = new String(m, pos + 2, len, StandardCharsets.UTF_8);
+                    pos += 2 + len;
+                }
+
+                NickState state = new NickState(nick, prior, (flags & FLAG_HIDDEN) != 0, version);
+                updates.add(new NickUpdate(new UUID(msb, lsb), state));
+            }
+            return new Frame(origin, timestamp, updates);
+        } catch (IndexOutOfBoundsException truncated) {
+            return null;
+        }
+    }
+
+    /** Legacy {@code "<uuid>|<nick>"}, parsed straight from the bytes. */
+    private static Frame decodeLegacy(byte[] m) {
+        if (m.length < UUID_TEXT_LEN + 1 || m[UUID_TEXT_LEN] != '|') return null;
+
+        UUID uuid = parseUuid(m);
+        if (uuid == null) return null;
+
+        int nickLen = m.length - UUID_TEXT_LEN - 1;
+        String nick = nickLen == 0 ? null : new String(m, UUID_TEXT_LEN + 1, nickLen, StandardCharsets.UTF_8);
+
+        return new Frame(null, 0L, List.of(new NickUpdate(uuid, NickState.fromLegacy(nick, null))));
+    }
+
+    /** Canonical 8-4-4-4-12 hex UUID at the start of {@code m}, or null. */
+    private static UUID parseUuid(byte[] m) {
+        long msb = 0L;
+        long lsb = 0L;
+        int nibbles = 0;
+
+        for (int i = 0; i < UUID_TEXT_LEN; i++) {
+            int c = m[i];
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') return null;
+                continue;
+            }
+
+            int d = hexDigit(c);
+            if (d < 0) return null;
+
+            if (nibbles < 16) msb = (msb << 4) | d;
+            else lsb = (lsb << 4) | d;
+            nibbles++;
+        }
+        return new UUID(msb, lsb);
+    }
+
+    private static int hexDigit(int c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        return -1;
+    }
+
+    private static long readLong(byte[] m, int pos) {
+        long v = 0L;
+        for (int i = 0; i < 8; i++) v = (v << 8) | (m[pos + i] & 0xFFL);
+        return v;
+    }
+
+    private static int readU16(byte[] m, int pos) {
+        return ((m[pos] & 0xFF) << 8) | (m[pos + 1] & 0xFF);
+    }
+}
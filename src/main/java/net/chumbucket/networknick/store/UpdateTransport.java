@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.store;
+
+import net.chumbucket.networknick.service.NickState;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * How nick updates reach the other servers. The publishing server applies its own changes
+ * directly; transports that deliver a server's publishes back to it ({@link #echoes()})
+ * have those echoes recognised by origin and dropped.
+ */
+public interface UpdateTransport {
+
+    /** Receives updates on a transport thread, never the main thread. */
+    interface Listener {
+        /** One or more received frames, to be applied together. */
+        void onFrames(List<UpdateCodec.Frame> frames);
+
+        /** Updates may have been missed (e.g. a trimmed stream); reload everyone from the store. */
+        void onGap();
+
+        /** Players on this server right now; safe to call from any thread. */
+        Set<UUID> online();
+    }
+
+    /** Start delivering updates to {@code listener}. */
+    void subscribe(Listener listener);
+
+    /** Stop delivering updates. Publishing may still be called until the store stops. */
+    void unsubscribe();
+
+    /** Send a player's new state to every server. */
+    void publish(UUID uuid, NickState state);
+
+    /**
+     * A player joined this server. Called on an I/O thread before their join lookup, so
+     * transports that route updates by presence can start sending theirs here.
+     */
+    default void playerJoined(UUID uuid) {}
+
+    /** A player left this server (called on an I/O thread). */
+    default void playerLeft(UUID uuid) {}
+
+    /** Whether this server receives its own publishes back (pub/sub and streams do). */
+    default boolean echoes() {
+        return true;
+    }
+
+    /** Extra lines (with & colors) for /networknick status. */
+    default void status(List<String> lines) {}
+}
@@ -10,14 +10,16 @@
 
 package net.chumbucket.networknick.util;
 
+import net.chumbucket.networknick.NetworkNickConfig;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.bukkit.command.CommandSender;
-import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.function.Supplier;
 
 public final class Msg {
 
-    private static JavaPlugin plugin;
+    private static Supplier<NetworkNickConfig> settings;
 
     // Supports legacy & color codes -> Component
     private static final LegacyComponentSerializer LEGACY =
@@ -25,8 +27,8 @@ public final class Msg {
 
     private Msg() {}
 
-    public static void init(JavaPlugin pl) {
-        plugin = pl;
+    public static void init(Supplier<NetworkNickConfig> config) {
+        settings = config;
     }
 
     public static String color(String s) {
@@ -40,9 +42,9 @@ public final class Msg {
     }
 
     public static void send(CommandSender to, String path, String... pairs) {
-        if (plugin == null) return;
+        if (settings == null) return;
 
-        String msg = plugin.getConfig().getString(path, "");
+        String msg = settings.get().message(path);
         if (msg == null || msg.isBlank()) return;
 
         for (int i = 0; i + 1 < pairs.length; i += 2) {
@@ -0,0 +1,157 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
+import org.bukkit.scheduler.BukkitScheduler;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+import java.util.logging.Logger;
+
+/**
+ * Just enough of a Bukkit server for tests: one "main thread" (a single-thread executor)
+ * that {@link Bukkit#isPrimaryThread()} and the scheduler agree on, players backed by
+ * proxies, and a real {@link JavaPlugin} over a temp data folder. Anything else the
+ * plugin asks the server answers null / false / 0.
+ */
+public final class TestServer {
+
+    private static final Logger LOG = Logger.getLogger("TestServer");
+    private static final ExecutorService MAIN = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Server thread");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final Map<UUID, Player> PLAYERS = new ConcurrentHashMap<>();
+
+    private static volatile Thread mainThread;
+
+    private TestServer() {}
+
+    /** Install the fake server; once per JVM, later calls do nothing. */
+    public static synchronized void install() throws Exception {
+        if (Bukkit.getServer() != null) return;
+        mainThread = MAIN.submit(Thread::currentThread).get();
+        Bukkit.setServer(proxy(Server.class, TestServer::server));
+    }
+
+    /** Run {@code task} on the main thread and wait for it; its exceptions are rethrown here. */
+    public static void onMain(Runnable task) throws InterruptedException, TimeoutException {
+        try {
+            MAIN.submit(task).get(10, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /** A plugin whose config.yml is {@code config} (unset keys fall back to the shipped config.yml). */
+    public static JavaPlugin plugin(Path dataFolder, String config) throws IOException {
+        Files.createDirectories(dataFolder);
+        Files.writeString(dataFolder.resolve("config.yml"), config);
+        return new TestPlugin(dataFolder.toFile());
+    }
+
+    /** An online player with every permission; names set on them are kept, everything else is a no-op. */
+    public static Player player(UUID uuid, String name) {
+        Map<String, Object> names = new ConcurrentHashMap<>();
+        Player p = proxy(Player.class, (m, args) -> switch (m.getName()) {
+            case "getUniqueId" -> uuid;
+            case "getName" -> name;
+            case "isOnline", "hasPermission" -> true;
+            case "getDisplayName", "getPlayerListName" -> names.getOrDefault(m.getName().substring(3), name);
+            case "setDisplayName", "setPlayerListName" -> {
+                if (args[0] != null) names.put(m.getName().substring(3), args[0]);
+                yield null;
+            }
+            default -> defaultValue(m.getReturnType());
+        });
+        PLAYERS.put(uuid, p);
+        return p;
+    }
+
+    public static void removePlayer(Player p) {
+        PLAYERS.remove(p.getUniqueId());
+    }
+
+    private static Object server(Method m, Object[] args) {
+        return switch (m.getName()) {
+            case "isPrimaryThread" -> Thread.currentThread() == mainThread;
+            case "getLogger" -> LOG;
+            case "getName", "getVersion", "getBukkitVersion" -> "test";
+            case "getScheduler" -> proxy(BukkitScheduler.class, TestServer::scheduler);
+            case "getPluginManager" -> proxy(PluginManager.class, (mm, a) -> defaultValue(mm.getReturnType()));
+            case "getOnlinePlayers" -> List.copyOf(PLAYERS.values());
+            case "getPlayer" -> args[0] instanceof UUID uuid ? PLAYERS.get(uuid) : null;
+            default -> defaultValue(m.getReturnType());
+        };
+    }
+
+    // Only one-shot tasks run; repeating tasks (the apply queue, enforcement) are driven by tests directly
+    private static Object scheduler(Method m, Object[] args) {
+        if (m.getName().equals("runTask") && args[1] instanceof Runnable r) MAIN.execute(r);
+        return defaultValue(m.getReturnType());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, BiFunction<Method, Object[], Object> handler) {
+        return (T) Proxy.newProxyInstance(TestServer.class.getClassLoader(), new Class<?>[] { type }, (self, m, args) ->
+                switch (m.getName()) {
+                    case "equals" -> self == args[0];
+                    case "hashCode" -> System.identityHashCode(self);
+                    case "toString" -> type.getSimpleName() + "@test";
+                    default -> handler.apply(m, args);
+                });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) return null;
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0f;
+        if (type == double.class) return 0d;
+        if (type == byte.class) return (byte) 0;
+        if (type == short.class) return (short) 0;
+        return 0;
+    }
+
+    private static final class TestPlugin extends JavaPlugin {
+        @SuppressWarnings("deprecation")
+        TestPlugin(File dataFolder) {
+            super(new JavaPluginLoader(Bukkit.getServer()),
+                    new PluginDescriptionFile("NetworkNick", "test", NetworkNickPlugin.class.getName()),
+                    dataFolder, new File(dataFolder, "NetworkNick.jar"));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.service;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.entity.Player;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Rough timing of one display + list name apply: the old per-apply reflective path
+ * (Class.forName, getMethod, Method.invoke, NoSuchMethodException on Spigot) against the
+ * {@link NameApplier} picked at startup, on a stub Spigot player and a stub Paper player.
+ *
+ * Not a unit test (surefire skips it); run it by hand after {@code mvn test-compile}:
+ * <pre>
+ *   java -cp target/classes:target/test-classes:&lt;spigot-api + adventure jars&gt; \
+ *       net.chumbucket.networknick.service.NameApplierBenchmark
+ * </pre>
+ */
+public final class NameApplierBenchmark {
+
+    /** Stand-in for Paper's Player, which adds the Component name setters. */
+    public interface PaperPlayer extends Player {
+        void displayName(Component name);
+
+        void playerListName(Component name);
+    }
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 10;
+    private static final int APPLIES_PER_ROUND = 200_000;
+
+    // Keeps the JIT from dropping the calls
+    private static volatile Object sink;
+
+    private NameApplierBenchmark() {}
+
+    public static void main(String[] args) {
+        RenderedName name = new RenderedName("&6Nicky&r");
+        name.component();
+
+        Player spigot = stub(Player.class);
+        Player paper = stub(PaperPlayer.class);
+        NameApplier spigotApplier = new SpigotNameApplier();
+        NameApplier paperApplier = PaperNameApplier.create(PaperPlayer.class);
+        if (paperApplier == null) throw new IllegalStateException("could not bind the stub Paper setters");
+
+        run("spigot, reflective", () -> reflective(spigot, name));
+        run("spigot, applier   ", () -> applier(spigotApplier, spigot, name));
+        run("paper,  reflective", () -> reflective(paper, name));
+        run("paper,  applier   ", () -> applier(paperApplier, paper, name));
+    }
+
+    private static void run(String label, Runnable apply) {
+        for (int r = 0; r < WARMUP_ROUNDS; r++) round(apply);
+
+        long best = Long.MAX_VALUE;
+        long total = 0L;
+        for (int r = 0; r < ROUNDS; r++) {
+            long nanos = round(apply);
+            best = Math.min(best, nanos);
+            total += nanos;
+        }
+        System.out.printf("%s  %8.1f ns/apply (best %.1f)%n", label,
+                (double) total / ROUNDS / APPLIES_PER_ROUND, (double) best / APPLIES_PER_ROUND);
+    }
+
+    private static long round(Runnable apply) {
+        long start = System.nanoTime();
+        for (int i = 0; i < APPLIES_PER_ROUND; i++) apply.run();
+        return System.nanoTime() - start;
+    }
+
+    private static void applier(NameApplier applier, Player p, RenderedName name) {
+        applier.displayName(p, name);
+        applier.playerListName(p, name);
+    }
+
+    // The apply path before NameApplier: legacy setters, then a reflective lookup per Component setter
+    private static void reflective(Player p, RenderedName name) {
+        p.setDisplayName(name.legacy());
+        p.setPlayerListName(name.legacy());
+        try {
+            Class<?> componentClass = Class.forName("net.kyori.adventure.text.Component");
+            Object component = name.component();
+            try {
+                Method displayName = p.getClass().getMethod("displayName", componentClass);
+                displayName.invoke(p, component);
+            } catch (NoSuchMethodException ignored) {}
+            try {
+                Method listName = p.getClass().getMethod("playerListName", componentClass);
+                listName.invoke(p, component);
+            } catch (NoSuchMethodException ignored) {}
+        } catch (Throwable ignored) {
+        }
+    }
+
+    // Every call just records its argument; the same cost on both paths
+    private static <T extends Player> T stub(Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(NameApplierBenchmark.class.getClassLoader(), new Class<?>[] { type },
+                (self, m, a) -> {
+                    sink = a == null ? null : a[0];
+                    return m.getReturnType() == boolean.class ? Boolean.FALSE : null;
+                }));
+    }
+}
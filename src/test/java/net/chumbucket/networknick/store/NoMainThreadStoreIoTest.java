@@ -0,0 +1,244 @@
+/*
+ * Copyright © 2025 Sorekill
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package net.chumbucket.networknick.store;
+
+import net.chumbucket.networknick.NetworkNickConfig;
+import net.chumbucket.networknick.TestServer;
+import net.chumbucket.networknick.command.HideCommand;
+import net.chumbucket.networknick.command.NickCommand;
+import net.chumbucket.networknick.command.ReloadCommand;
+import net.chumbucket.networknick.command.UnhideCommand;
+import net.chumbucket.networknick.service.ExemptService;
+import net.chumbucket.networknick.service.NickScheduler;
+import net.chumbucket.networknick.service.NickService;
+import net.chumbucket.networknick.service.NickState;
+import net.chumbucket.networknick.util.Msg;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The plugin never does store I/O on the tick thread: commands, joins and reloads driven
+ * from the main thread only reach the store from other threads.
+ */
+class NoMainThreadStoreIoTest {
+
+    private static final String CONFIG = """
+            storage:
+              type: memory
+            snapshot:
+              enabled: false
+            journal:
+              drain-ms: 2000
+            """;
+
+    @TempDir
+    Path dir;
+
+    private JavaPlugin plugin;
+    private NetworkNickConfig settings;
+    private NickScheduler scheduler;
+    private NickService service;
+    private LocalSnapshot snapshot;
+    private ThreadCheckingStore store;
+    private final AtomicReference<NickBackend> backend = new AtomicReference<>();
+    private Player player;
+
+    @BeforeAll
+    static void server() throws Exception {
+        TestServer.install();
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        plugin = TestServer.plugin(dir, CONFIG);
+        settings = NetworkNickConfig.load(plugin.getConfig(), plugin.getLogger());
+        Msg.init(() -> settings);
+        scheduler = NickScheduler.detect(plugin);
+        service = new NickService(plugin.getLogger(), () -> settings, scheduler);
+        snapshot = new LocalSnapshot(plugin);
+        store = new ThreadCheckingStore();
+        backend.set(NickBackend.create(plugin, service, snapshot, store, new LocalTransport()));
+        player = TestServer.player(UUID.randomUUID(), "Tester");
+
+        TestServer.onMain(() -> backend.get().start());
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestServer.removePlayer(player);
+        backend.get().stop();
+    }
+
+    @Test
+    void commandsNeverTouchTheStoreOnTheMainThread() throws Exception {
+        NickCommand nick = new NickCommand(() -> settings, service, backend::get, new ExemptService(plugin, scheduler));
+        HideCommand hide = new HideCommand(() -> settings, service, backend::get);
+        UnhideCommand unhide = new UnhideCommand(() -> settings, service, backend::get, new ExemptService(plugin, scheduler));
+
+        // One at a time, so hide/unhide see the state the previous command left
+        TestServer.onMain(() -> nick.onCommand(player, null, "nick", new String[] { "Nicky" }));
+        assertTrue(store.awaitWrite(), "/nick never reached the store");
+        TestServer.onMain(() -> hide.onCommand(player, null, "hide", new String[0]));
+        assertTrue(store.awaitWrite(), "/hide never reached the store");
+        TestServer.onMain(() -> unhide.onCommand(player, null, "unhide", new String[0]));
+        assertTrue(store.awaitWrite(), "/unhide never reached the store");
+        TestServer.onMain(() -> nick.onCommand(player, null, "nick", new String[] { "off" }));
+        assertTrue(store.awaitWrite(), "/nick off never reached the store");
+
+        AtomicReference<CompletableFuture<NickState>> join = new AtomicReference<>();
+        TestServer.onMain(() -> join.set(backend.get().joinAsync(player.getUniqueId())));
+        join.get().get(10, TimeUnit.SECONDS);
+
+        // The blocking lookup refuses to run on the main thread instead of stalling it
+        TestServer.onMain(() -> assertNull(backend.get().getState(player.getUniqueId())));
+
+        assertEquals(List.of(), store.mainThreadCalls);
+        assertFalse(store.delegate.get(player.getUniqueId()).hasNick());
+    }
+
+    @Test
+    void reloadStopsTheOldBackendOffTheMainThread() throws Exception {
+        NickBackend old = backend.get();
+        ReloadCommand reload = new ReloadCommand(plugin, service, new ReloadCommand.BackendRef() {
+            @Override public NickBackend get() { return backend.get(); }
+            @Override public void set(NickBackend b) { backend.set(b); }
+        }, snapshot, () -> {});
+
+        TestServer.onMain(() -> reload.onCommand(player, null, "networknick", new String[0]));
+
+        assertTrue(store.stopped.await(10, TimeUnit.SECONDS), "old store was never stopped");
+        assertEquals(List.of(), store.mainThreadCalls);
+
+        // The new backend is swapped in on the main thread once the old one has stopped
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (backend.get() == old && System.nanoTime() < deadline) {
+            TestServer.onMain(() -> {});
+        }
+        assertNotSame(old, backend.get());
+    }
+
+    /** Memory store that records every call made from the main thread. */
+    private static final class ThreadCheckingStore implements NickStore {
+
+        final MemoryNickStore delegate = new MemoryNickStore();
+        final List<String> mainThreadCalls = new CopyOnWriteArrayList<>();
+        final CountDownLatch stopped = new CountDownLatch(1);
+        private final Semaphore writes = new Semaphore(0);
+
+        boolean awaitWrite() throws InterruptedException {
+            return writes.tryAcquire(10, TimeUnit.SECONDS);
+        }
+
+        private void check(String op) {
+            if (Bukkit.isPrimaryThread()) mainThreadCalls.add(op);
+        }
+
+        @Override
+        public String name() {
+            return "thread-checking";
+        }
+
+        // Starting is allowed on the main thread (onEnable/reload); it must not do I/O
+        @Override
+        public void start() {
+            delegate.start();
+        }
+
+        @Override
+        public void flush() {
+            check("flush");
+            delegate.flush();
+        }
+
+        @Override
+        public void stop() {
+            check("stop");
+            delegate.stop();
+            stopped.countDown();
+        }
+
+        @Override
+        public NickState get(UUID uuid) {
+            check("get");
+            return delegate.get(uuid);
+        }
+
+        @Override
+        public Map<UUID, NickState> getAll(Collection<UUID> uuids) {
+            check("getAll");
+            return delegate.getAll(uuids);
+        }
+
+        @Override
+        public NickState set(UUID uuid, String nick) {
+            check("set");
+            try {
+                return delegate.set(uuid, nick);
+            } finally {
+                writes.release();
+            }
+        }
+
+        @Override
+        public NickState clear(UUID uuid) {
+            check("clear");
+            try {
+                return delegate.clear(uuid);
+            } finally {
+                writes.release();
+            }
+        }
+
+        @Override
+        public Result toggleHide(UUID uuid, String hideNick) {
+            check("toggleHide");
+            try {
+                return delegate.toggleHide(uuid, hideNick);
+            } finally {
+                writes.release();
+            }
+        }
+
+        @Override
+        public Result unhide(UUID uuid) {
+            check("unhide");
+            try {
+                return delegate.unhide(uuid);
+            } finally {
+                writes.release();
+            }
+        }
+    }
+}